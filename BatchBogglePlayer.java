@@ -0,0 +1,311 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+/*
+  Solves many boards in one walk over the dictionary trie.
+
+  BogglePlayer runs one DFS per board, so every board walks the upper trie
+  levels again. Here the trie drives the search instead: the walk visits
+  each trie node once per batch and carries the live search states of all
+  boards of the batch that reached it. A state is (board, cell, visited
+  cells, path so far), packed into primitive arrays. At each node the
+  states are checked against the node's required letters, the word (if
+  any) is recorded for their boards, and every state is extended to its
+  unvisited neighbors, grouped by the neighbor's tile. Each group then
+  continues at the child for that tile. Nodes no board can use are never
+  touched, and a node used by many boards is loaded once for all of them
+  (with multi-letter tiles a node can also be reached through the tile and
+  letter by letter, once per way of spelling its prefix).
+
+  Results are the same words as BogglePlayer.getWords(board, 20) would keep
+  from a complete search (the per-board top 20 by length). A batch object
+  is not thread-safe; concurrent getWords/solve calls each use their own.
+
+  Usage: BatchBogglePlayer wordFile [boards]
+         compares per-board BogglePlayer (its usual top-20 solve, and a
+         complete one) with batch sizes 1, 4, 16, ... up to all boards
+*/
+public class BatchBogglePlayer implements BoggleSolver {
+    private static final int MAX_WORDS = 20;
+    private static final int TILES = TileSet.MAX_TILES;
+
+    // Cells adjacent to each cell, as bit masks (bit row * 4 + col)
+    private static final int[] NEIGHBORS = new int[16];
+
+    static {
+        for (int cell = 0; cell < 16; cell++) {
+            for (int d = 0; d < 8; d++) {
+                int r = cell / 4 + BogglePlayer.ROW_DIR[d], c = cell % 4 + BogglePlayer.COL_DIR[d];
+                if (r >= 0 && r < 4 && c >= 0 && c < 4) NEIGHBORS[cell] |= 1 << (r * 4 + c);
+            }
+        }
+    }
+
+    private final CompressedTrie dictionary;
+
+    // Initialize with a file of English words, for classic boards (Q is QU)
+    public BatchBogglePlayer(String wordFile) {
+        this(wordFile, TileSet.CLASSIC);
+    }
+
+    public BatchBogglePlayer(String wordFile, TileSet tiles) {
+        CompressedTrie loaded;
+        try {
+            loaded = DictionaryLoader.load(wordFile, tiles);
+        } catch (IOException e) {
+            System.err.println("Error reading dictionary file: " + e.getMessage());
+            loaded = new CompressedTrie(tiles);
+        }
+        dictionary = loaded;
+    }
+
+    /**
+     * Find up to 20 words on one board (a batch of one)
+     *
+     * @param board the board
+     * @return the words found
+     */
+    public Word[] getWords(char[][] board) {
+        return solve(new char[][][] { board })[0];
+    }
+
+    /**
+     * Solve boards in batches of batchSize
+     *
+     * @param boards    the boards
+     * @param batchSize boards per trie walk, at least 1
+     * @return per board, up to 20 of the longest words
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public Word[][] solve(char[][][] boards, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batch size " + batchSize + ", must be at least 1");
+        Word[][] result = new Word[boards.length][];
+        for (int from = 0; from < boards.length; from += batchSize) {
+            char[][][] batch = Arrays.copyOfRange(boards, from, Math.min(boards.length, from + batchSize));
+            System.arraycopy(solve(batch), 0, result, from, batch.length);
+        }
+        return result;
+    }
+
+    /**
+     * Solve all boards in a single trie walk
+     *
+     * @param boards the boards
+     * @return per board, up to 20 of the longest words
+     */
+    public Word[][] solve(char[][][] boards) {
+        return new Walk(boards, dictionary.getTileSet()).run(dictionary.getRoot());
+    }
+
+    // Search states of one trie depth, grouped by the tile they step onto next
+    private static final class Level {
+        final int[][] boards = new int[TILES][16];
+        final int[][] states = new int[TILES][16];   // visited cells | cell << 16 | path length << 20
+        final long[][] paths = new long[TILES][16];   // cells of the path, 4 bits each
+        final int[] sizes = new int[TILES];
+
+        void add(int tile, int board, int state, long path) {
+            int at = sizes[tile]++;
+            if (at == boards[tile].length) {
+                boards[tile] = Arrays.copyOf(boards[tile], at * 2);
+                states[tile] = Arrays.copyOf(states[tile], at * 2);
+                paths[tile] = Arrays.copyOf(paths[tile], at * 2);
+            }
+            boards[tile][at] = board;
+            states[tile][at] = state;
+            paths[tile][at] = path;
+        }
+    }
+
+    // One batch: per-board setup, the levels and the per-board results
+    private static final class Walk {
+        final int count;
+        final TileSet tiles;
+        final int[][] tileOf;       // [board][cell] tile id, -1 if the cell isn't a tile
+        final int[][] lettersOf;    // [board][cell] letter mask of the cell
+        final List<Level> levels = new ArrayList<>();
+        final StringBuilder word = new StringBuilder();
+        final List<PriorityQueue<Word>> found = new ArrayList<>();
+        final int[] lastNode;       // [board] id of the last node that recorded a word for it
+        int nodeId;
+
+        Walk(char[][][] boards, TileSet tiles) {
+            count = boards.length;
+            this.tiles = tiles;
+            tileOf = new int[count][16];
+            lettersOf = new int[count][16];
+            lastNode = new int[count];
+            for (int b = 0; b < count; b++) {
+                for (int cell = 0; cell < 16; cell++) {
+                    char c = boards[b][cell / 4][cell % 4];
+                    tileOf[b][cell] = tiles.tileId(c);
+                    String letters = tiles.spell(c);
+                    if (letters != null) {
+                        for (int i = 0; i < letters.length(); i++) lettersOf[b][cell] |= 1 << (letters.charAt(i) - 'A');
+                    }
+                }
+                found.add(new PriorityQueue<>(Comparator.comparingInt((Word w) -> w.getWord().length())
+                                                        .thenComparing(Word::getWord)));
+            }
+        }
+
+        Level level(int depth) {
+            while (levels.size() <= depth) levels.add(new Level());
+            return levels.get(depth);
+        }
+
+        int available(int board, int visited) {
+            int mask = 0;
+            for (int free = ~visited & 0xFFFF; free != 0; free &= free - 1) {
+                mask |= lettersOf[board][Integer.numberOfTrailingZeros(free)];
+            }
+            return mask;
+        }
+
+        Word[][] run(Node root) {
+            Level first = level(0);
+            for (int b = 0; b < count; b++) {
+                for (int cell = 0; cell < 16; cell++) {
+                    int tile = tileOf[b][cell];
+                    if (tile < 0) continue;
+                    int visited = 1 << cell;
+                    first.add(tile, b, visited | cell << 16 | 1 << 20, cell);
+                }
+            }
+            descend(root, first, 0);
+
+            Word[][] result = new Word[count][];
+            for (int b = 0; b < count; b++) {
+                PriorityQueue<Word> queue = found.get(b);
+                result[b] = new Word[queue.size()];
+                for (int i = 0; i < result[b].length; i++) result[b][i] = queue.poll();
+            }
+            return result;
+        }
+
+        // Continue every non-empty group of a level at the child for its tile
+        private void descend(Node node, Level level, int depth) {
+            for (int tile = 0; tile < TILES; tile++) {
+                if (level.sizes[tile] == 0) continue;
+                Node child = node.child(tile);
+                if (child != null) {
+                    String letters = tiles.letters(tile);
+                    word.append(letters);
+                    visit(child, level, tile, depth + 1);
+                    word.setLength(word.length() - letters.length());
+                }
+                level.sizes[tile] = 0;
+            }
+        }
+
+        // The states in group tile of level have just stepped onto node
+        private void visit(Node node, Level level, int tile, int depth) {
+            int id = ++nodeId;
+            Level next = level(depth);
+            // tiles the node has a child for, so states are only carried where they can go on
+            int children = 0;
+            for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) children |= 1 << c;
+            for (int t = TileSet.LETTERS; t < TILES; t++) {
+                if (node.child(t) != null) children |= 1 << t;
+            }
+            String text = null;
+            int size = level.sizes[tile];
+            int[] boards = level.boards[tile], states = level.states[tile];
+            long[] paths = level.paths[tile];
+            for (int i = 0; i < size; i++) {
+                int board = boards[i], state = states[i];
+                int visited = state & 0xFFFF, cell = (state >>> 16) & 0xF, length = state >>> 20;
+                // letters on the unvisited cells are only worked out when the node needs any
+                if (node.requiredMask != 0 && (node.requiredMask & ~available(board, visited)) != 0) continue;
+                if (node.isWord && lastNode[board] != id) {
+                    lastNode[board] = id;
+                    if (text == null) text = word.toString();
+                    addWord(board, text, paths[i], length);
+                }
+                for (int free = NEIGHBORS[cell] & ~visited; free != 0; free &= free - 1) {
+                    int neighbor = Integer.numberOfTrailingZeros(free);
+                    int nextTile = tileOf[board][neighbor];
+                    if (nextTile < 0 || (children & (1 << nextTile)) == 0) continue;
+                    int nextVisited = visited | 1 << neighbor;
+                    next.add(nextTile, board, nextVisited | neighbor << 16 | (length + 1) << 20,
+                             paths[i] | (long) neighbor << (4 * length));
+                }
+            }
+            descend(node, next, depth);
+        }
+
+        // Same top 20 as BogglePlayer.Search.addWord. lastNode keeps a word from being
+        // added twice from one node; a node reached again through a multi-letter tile
+        // (TH versus T, H) is caught by the scan, and a word dropped from the top 20
+        // can't come back, as it is not longer than the words that replaced it.
+        private void addWord(int board, String text, long path, int length) {
+            PriorityQueue<Word> queue = found.get(board);
+            if (queue.size() == MAX_WORDS && queue.peek().getWord().length() >= text.length()) return;
+            for (Word w : queue) {
+                if (w.getWord().equals(text)) return;
+            }
+            Word w = new Word(text);
+            ArrayList<Location> locations = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                int cell = (int) (path >>> (4 * i)) & 0xF;
+                locations.add(new Location(cell / 4, cell % 4));
+            }
+            w.setPath(locations);
+            if (queue.size() == MAX_WORDS) queue.poll();
+            queue.add(w);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BatchBogglePlayer wordFile [boards]");
+            System.exit(-1);
+        }
+        int count = args.length == 2 ? Integer.parseInt(args[1]) : 4096;
+        char[][][] boards = new char[count][][];
+        for (int b = 0; b < count; b++) boards[b] = BoggleBoards.randomBoard(b);
+
+        BogglePlayer single = new BogglePlayer(args[0]);
+        BatchBogglePlayer batch = new BatchBogglePlayer(args[0]);
+        Map<String, Supplier<Word[][]>> engines = new LinkedHashMap<>();
+        engines.put("getWords", () -> {
+            Word[][] result = new Word[count][];
+            for (int b = 0; b < count; b++) result[b] = single.getWords(boards[b]);
+            return result;
+        });
+        engines.put("getWords, complete", () -> {
+            Word[][] result = new Word[count][];
+            for (int b = 0; b < count; b++) result[b] = single.getWords(boards[b], Integer.MAX_VALUE);
+            return result;
+        });
+        for (int size = 1; size <= count; size *= 4) {
+            int batchSize = size;
+            engines.put("batch of " + size, () -> batch.solve(boards, batchSize));
+        }
+
+        // best of 5 runs each, after one warmup run
+        System.out.printf("%d boards\n%-20s %12s %10s\n", count, "engine", "us/board", "points");
+        for (Map.Entry<String, Supplier<Word[][]>> engine : engines.entrySet()) {
+            engine.getValue().get();
+            long best = Long.MAX_VALUE, points = 0;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                Word[][] result = engine.getValue().get();
+                best = Math.min(best, System.nanoTime() - start);
+                points = 0;
+                for (Word[] words : result) points += points(words);
+            }
+            System.out.printf("%-20s %12.1f %10d\n", engine.getKey(), best / 1e3 / count, points);
+        }
+    }
+
+    // Points of the 20 longest words (getWords returns shortest first)
+    private static long points(Word[] words) {
+        long points = 0;
+        for (int i = Math.max(0, words.length - MAX_WORDS); i < words.length; i++) {
+            points += BoggleScorer.wordPoints(words[i].getWord());
+        }
+        return points;
+    }
+}
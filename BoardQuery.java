@@ -0,0 +1,278 @@
+import java.util.*;
+
+/*
+  A query for the words on a board that satisfy some constraints, run with
+  BogglePlayer.query:
+
+    new BoardQuery().minLength(7)           all words of 7 letters or more
+    new BoardQuery().pattern("?RA?E")       ? is any one letter, * any run
+    new BoardQuery().prefix("ST")           words starting with ST
+    new BoardQuery().throughCell(2, 3)      words whose path uses cell (2,3)
+
+  Constraints combine, and every one of them prunes inside the trie DFS
+  instead of filtering a full solve afterwards:
+   - the pattern is compiled to a small NFA (a bit per pattern position) that
+     is stepped along with the trie, and a branch ends as soon as no
+     position is left, so a pattern acts like a second trie intersected
+     with the dictionary; the prefix is checked the same way,
+   - the pattern's letters that every match still needs must be left on
+     unvisited cells, the same test as the trie's required-letter masks,
+   - a branch ends when it would pass the maximum length, or when all the
+     letters left on unvisited cells can't reach the minimum length,
+   - with required cells, a branch ends when a cell still to visit is walled
+     off by the path, or can't be reached within the maximum length (a
+     breadth-first pass over the unvisited cells gives the distances).
+  The result is every matching word, shortest first, as getWords returns
+  them with Integer.MAX_VALUE.
+*/
+public class BoardQuery {
+    private static final int MAX_PATTERN = 63; // positions 0..length must fit a long
+
+    // Cells adjacent to each cell, as bit masks (bit row * 4 + col)
+    private static final int[] NEIGHBORS = new int[16];
+
+    static {
+        for (int cell = 0; cell < 16; cell++) {
+            for (int d = 0; d < 8; d++) {
+                int r = cell / 4 + BogglePlayer.ROW_DIR[d], c = cell % 4 + BogglePlayer.COL_DIR[d];
+                if (r >= 0 && r < 4 && c >= 0 && c < 4) NEIGHBORS[cell] |= 1 << (r * 4 + c);
+            }
+        }
+    }
+
+    private int minLength = 3;
+    private int maxLength = Integer.MAX_VALUE;
+    private String prefix = "";
+    private String pattern;
+    // pattern NFA: bit i = "the next letter is matched by position i"
+    private final long[] matches = new long[26];
+    private long stars;
+    private long start;
+    private long accept;
+    // letters every match still needs from position i on (pattern letters, not ? or *)
+    private final long[] needs = new long[MAX_PATTERN + 1];
+    private int requiredCells; // bit row * 4 + col
+
+    /**
+     * Only words of at least this many letters (never fewer than 3)
+     *
+     * @param letters minimum length
+     * @return this query
+     */
+    public BoardQuery minLength(int letters) {
+        minLength = Math.max(3, letters);
+        return this;
+    }
+
+    /**
+     * Only words of at most this many letters
+     *
+     * @param letters maximum length
+     * @return this query
+     */
+    public BoardQuery maxLength(int letters) {
+        maxLength = letters;
+        return this;
+    }
+
+    /**
+     * Only words starting with a prefix
+     *
+     * @param letters the prefix, A-Z in any case
+     * @return this query
+     */
+    public BoardQuery prefix(String letters) {
+        String upper = letters.toUpperCase();
+        for (int i = 0; i < upper.length(); i++) {
+            char c = upper.charAt(i);
+            if (c < 'A' || c > 'Z') throw new IllegalArgumentException("bad prefix " + letters);
+        }
+        prefix = upper;
+        return this;
+    }
+
+    /**
+     * Only words matching a pattern over the whole word: letters match
+     * themselves, ? any one letter and * any run of letters (also none)
+     *
+     * @param glob the pattern, e.g. "?RA?E" or "*ING"
+     * @return this query
+     */
+    public BoardQuery pattern(String glob) {
+        String upper = glob.toUpperCase();
+        if (upper.length() > MAX_PATTERN) throw new IllegalArgumentException("pattern too long: " + glob);
+        Arrays.fill(matches, 0);
+        stars = 0;
+        for (int i = 0; i < upper.length(); i++) {
+            char c = upper.charAt(i);
+            if (c == '*') {
+                stars |= 1L << i;
+            } else if (c == '?') {
+                for (int l = 0; l < 26; l++) matches[l] |= 1L << i;
+            } else if (c >= 'A' && c <= 'Z') {
+                matches[c - 'A'] |= 1L << i;
+            } else {
+                throw new IllegalArgumentException("bad pattern " + glob);
+            }
+        }
+        pattern = upper;
+        Arrays.fill(needs, 0);
+        for (int i = upper.length() - 1; i >= 0; i--) {
+            char c = upper.charAt(i);
+            needs[i] = needs[i + 1] | (c >= 'A' && c <= 'Z' ? 1L << (c - 'A') : 0);
+        }
+        start = close(1L);
+        accept = 1L << upper.length();
+        return this;
+    }
+
+    /**
+     * Only words whose path goes through a cell; can be given more than once.
+     * A cell the board has no tile on matches no word.
+     *
+     * @param row row, 0-3
+     * @param col column, 0-3
+     * @return this query
+     */
+    public BoardQuery throughCell(int row, int col) {
+        if (row < 0 || row >= 4 || col < 0 || col >= 4) throw new IllegalArgumentException("no cell " + row + "," + col);
+        requiredCells |= 1 << (row * 4 + col);
+        return this;
+    }
+
+    // A * position can match nothing, so it also admits the position after it
+    private long close(long states) {
+        long closed = states;
+        while (true) {
+            long next = closed | ((closed & stars) << 1);
+            if (next == closed) return closed;
+            closed = next;
+        }
+    }
+
+    // Pattern positions left after one more letter; 0 means the pattern can't match
+    private long step(long states, char letter) {
+        return close(((states & matches[letter - 'A']) << 1) | (states & stars));
+    }
+
+    // Letters needed by every completion of the pattern from these positions
+    private long needed(long states) {
+        long mask = ~0L;
+        for (long s = states; s != 0; s &= s - 1) mask &= needs[Long.numberOfTrailingZeros(s)];
+        return mask;
+    }
+
+    // Length bounds implied by all the constraints together
+    private int effectiveMin() {
+        int min = Math.max(minLength, prefix.length());
+        if (pattern != null) min = Math.max(min, pattern.length() - Long.bitCount(stars));
+        return min;
+    }
+
+    private int effectiveMax() {
+        return pattern != null && stars == 0 ? Math.min(maxLength, pattern.length()) : maxLength;
+    }
+
+    // Search state on top of the solver's: bounds, the letters left on unvisited cells
+    // and the visited cells as a mask
+    private final class Run {
+        final BogglePlayer.Search search;
+        final int min, max;
+        int lettersLeft;
+        int visitedCells;
+
+        Run(BogglePlayer.Search search) {
+            this.search = search;
+            min = effectiveMin();
+            max = effectiveMax();
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    if (search.cellLetters[i][j] != null) lettersLeft += search.cellLetters[i][j].length();
+                    else visitedCells |= 1 << (i * 4 + j);
+                }
+            }
+        }
+    }
+
+    // Run the query against a dictionary snapshot
+    Word[] run(Node root, TileSet tiles, char[][] board) {
+        BogglePlayer.Search search = new BogglePlayer.Search(board, Integer.MAX_VALUE, tiles);
+        Run run = new Run(search);
+        // cells without a tile start out visited, and no path goes through one
+        if (run.min <= run.max && (requiredCells & run.visitedCells) == 0) {
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    tryCell(run, root, pattern == null ? 0 : start, i, j);
+                }
+            }
+        }
+        Word[] words = new Word[search.foundWords.size()];
+        for (int i = 0; i < words.length; i++) words[i] = search.foundWords.poll();
+        return words;
+    }
+
+    // Step from node onto a cell if the trie and every constraint allow it
+    private void tryCell(Run run, Node node, long states, int row, int col) {
+        BogglePlayer.Search search = run.search;
+        if (search.visited[row][col]) return;
+        Node next = node.child(search.tileIds[row][col]);
+        if (next == null) return;
+        String letters = search.cellLetters[row][col];
+        int at = search.currentWord.length();
+        if (at + letters.length() > run.max) return;
+        for (int k = 0; k < letters.length(); k++) {
+            char letter = letters.charAt(k);
+            if (at + k < prefix.length() && prefix.charAt(at + k) != letter) return;
+            if (pattern != null) {
+                states = step(states, letter);
+                if (states == 0) return;
+            }
+        }
+
+        search.enter(row, col);
+        run.lettersLeft -= letters.length();
+        run.visitedCells |= 1 << (row * 4 + col);
+        dfs(run, row, col, next, states);
+        run.visitedCells &= ~(1 << (row * 4 + col));
+        run.lettersLeft += letters.length();
+        search.leave(row, col);
+    }
+
+    private void dfs(Run run, int row, int col, Node node, long states) {
+        BogglePlayer.Search search = run.search;
+        if ((node.requiredMask & ~search.available) != 0) return;
+        // like requiredMask, but for the letters the pattern still asks for
+        if (pattern != null && (needed(states) & ~search.available) != 0) return;
+        int length = search.currentWord.length();
+        if (length + run.lettersLeft < run.min) return;
+
+        int missing = requiredCells & ~run.visitedCells;
+        if (missing != 0 && !reachable(run, row * 4 + col, missing, run.max - length)) return;
+
+        if (node.isWord && missing == 0 && length >= run.min && (pattern == null || (states & accept) != 0)) {
+            search.addWord();
+        }
+        for (int d = 0; d < 8; d++) {
+            int newRow = row + BogglePlayer.ROW_DIR[d];
+            int newCol = col + BogglePlayer.COL_DIR[d];
+            if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4) continue;
+            tryCell(run, node, states, newRow, newCol);
+        }
+    }
+
+    // Whether a path of at most steps more cells through unvisited cells can reach all
+    // the missing cells; every step takes one letter at least, and a cell each
+    private static boolean reachable(Run run, int from, int missing, int steps) {
+        if (Integer.bitCount(missing) > steps) return false;
+        int free = ~run.visitedCells & 0xFFFF;
+        int reached = 0, frontier = NEIGHBORS[from] & free;
+        for (int distance = 1; frontier != 0 && distance <= steps; distance++) {
+            reached |= frontier;
+            if ((missing & ~reached) == 0) return true;
+            int next = 0;
+            for (int f = frontier; f != 0; f &= f - 1) next |= NEIGHBORS[Integer.numberOfTrailingZeros(f)];
+            frontier = next & free & ~reached;
+        }
+        return false;
+    }
+}
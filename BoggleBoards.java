@@ -0,0 +1,41 @@
+import java.util.*;
+
+/*
+  Seeded board generation shared by the tools.
+
+  Same dice and shuffling as the evaluators: each cell rolls one of the
+  remaining 16 Boggle dice, so a seed always maps to the same board as
+  test.java produces for that seed.
+*/
+public class BoggleBoards {
+    static final List<String> BOGGLE_DICES = Arrays.asList(
+            "AAEEGN", "ABBJOO", "ACHOPS", "AFFKPS", "AOOTTW", "CIMOTU", "DEILRX", "DELRVY",
+            "DISTTY", "EEGHNW", "EEINSU", "EHRTVW", "EIOSST", "ELRTTY", "HIMNUQ", "HLNNRZ");
+
+    private BoggleBoards() {
+    }
+
+    /**
+     * Generate the 4x4 board for a seed
+     *
+     * @param seed seed for the random generator
+     * @return a new board
+     */
+    public static char[][] randomBoard(long seed) {
+        Random rnd = new Random(seed);
+        ArrayList<String> dices = new ArrayList<>(BOGGLE_DICES);
+        int length = dices.size();
+        char[][] board = new char[4][4];
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                int diceIndex = rnd.nextInt(length);
+                String dice = dices.get(diceIndex);
+                board[i][j] = dice.charAt(rnd.nextInt(6));
+                dices.set(diceIndex, dices.get(length - 1));
+                dices.set(length - 1, dice);
+                length--;
+            }
+        }
+        return board;
+    }
+}
@@ -1,6 +1,184 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/*
+  Multiplayer Boggle round simulator.
+
+  Every round, N solver-backed bots play the same seeded board. Each bot
+  finds a word with probability skill^(length - 2), so long words are found
+  less often, and submits at most maxWords of the longest words it found.
+  As in real Boggle, a word submitted by more than one player scores zero
+  for everybody; the others score as in the evaluator, (length - 2)^2.
+
+  A submitted word is identified by its index in the round's solve result,
+  which holds every word on the board once, and shared words are found by
+  sorting the ids of all submissions, so cancellation never compares
+  Strings. The ids come from the same solve as the words: a dictionary
+  lookup per word could run on a newer snapshot (see
+  BogglePlayer.updateDictionary) that no longer has some of them.
+
+  Usage: BoggleGame wordFile [players] [rounds] [threads]
+*/
 public class BoggleGame {
-    public static void main(String[] args) {
-            System.out.println("Hello World!");// another test
-        //test
+    // A simulated player
+    public static class Bot {
+        public final String name;
+        public final double skill;   // 0..1, chance of finding a 3-letter word
+        public final int maxWords;   // most words submitted per round
+
+        public Bot(String name, double skill, int maxWords) {
+            this.name = name;
+            this.skill = skill;
+            this.maxWords = maxWords;
+        }
+    }
+
+    // Outcome of one round
+    public static class RoundResult {
+        public final long seed;
+        public final int[] scores;     // per bot, same order as the bots
+        public final int submitted;    // words submitted by all bots together
+        public final int cancelled;    // distinct words submitted by more than one bot
+
+        RoundResult(long seed, int[] scores, int submitted, int cancelled) {
+            this.seed = seed;
+            this.scores = scores;
+            this.submitted = submitted;
+            this.cancelled = cancelled;
+        }
+    }
+
+    private final BogglePlayer solver;
+    private final List<Bot> bots;
+
+    public BoggleGame(BogglePlayer solver, List<Bot> bots) {
+        this.solver = solver;
+        this.bots = new ArrayList<>(bots);
+    }
+
+    /**
+     * Play one round on the board of a seed; the same seed always gives the
+     * same submissions and scores. Safe to call from several threads.
+     *
+     * @param seed board and bot seed
+     * @return the round's scores
+     */
+    public RoundResult playRound(long seed) {
+        char[][] board = BoggleBoards.randomBoard(seed);
+        // every word on the board, shortest first
+        Word[] onBoard = solver.getWords(board, Integer.MAX_VALUE);
+
+        int players = bots.size();
+        int[][] ids = new int[players][];
+        int[][] points = new int[players][];
+        int submitted = 0;
+        for (int p = 0; p < players; p++) {
+            submit(bots.get(p), onBoard, new Random(seed * 1_000_003L + p), ids, points, p);
+            submitted += ids[p].length;
+        }
+
+        // a player submits a word at most once, so an id seen twice is shared
+        int[] all = new int[submitted];
+        for (int p = 0, at = 0; p < players; p++) {
+            System.arraycopy(ids[p], 0, all, at, ids[p].length);
+            at += ids[p].length;
+        }
+        Arrays.sort(all);
+        int[] shared = new int[submitted];
+        int sharedCount = 0;
+        for (int i = 1; i < submitted; i++) {
+            if (all[i] == all[i - 1] && (sharedCount == 0 || shared[sharedCount - 1] != all[i])) {
+                shared[sharedCount++] = all[i];
+            }
+        }
+
+        int[] scores = new int[players];
+        for (int p = 0; p < players; p++) {
+            for (int w = 0; w < ids[p].length; w++) {
+                if (Arrays.binarySearch(shared, 0, sharedCount, ids[p][w]) < 0) {
+                    scores[p] += points[p][w];
+                }
+            }
+        }
+        return new RoundResult(seed, scores, submitted, sharedCount);
+    }
+
+    // Pick the bot's words, longest first, and turn them into word ids and points
+    private void submit(Bot bot, Word[] onBoard, Random rnd, int[][] ids, int[][] points, int p) {
+        int[] myIds = new int[Math.min(bot.maxWords, onBoard.length)];
+        int[] myPoints = new int[myIds.length];
+        int count = 0;
+        for (int w = onBoard.length - 1; w >= 0 && count < myIds.length; w--) {
+            String word = onBoard[w].getWord();
+            if (rnd.nextDouble() < Math.pow(bot.skill, word.length() - 2)) {
+                myIds[count] = w; // the word's index on the board is its id for the round
+                myPoints[count] = BoggleScorer.wordPoints(word);
+                count++;
+            }
+        }
+        ids[p] = Arrays.copyOf(myIds, count);
+        points[p] = Arrays.copyOf(myPoints, count);
+    }
+
+    /**
+     * Play rounds for a range of seeds in parallel
+     *
+     * @param firstSeed first seed
+     * @param rounds    number of rounds
+     * @param pool      pool to run the rounds on
+     * @return per-bot total scores, followed by total submitted and total cancelled words
+     * @throws InterruptedException if interrupted while waiting for the rounds
+     * @throws ExecutionException   if a round failed
+     */
+    public long[] playRounds(long firstSeed, long rounds, ForkJoinPool pool)
+        throws InterruptedException, ExecutionException {
+        int players = bots.size();
+        AtomicLongArray totals = new AtomicLongArray(players + 2);
+        pool.submit(() -> LongStream.range(firstSeed, firstSeed + rounds).parallel().forEach(seed -> {
+            RoundResult result = playRound(seed);
+            for (int p = 0; p < players; p++) totals.addAndGet(p, result.scores[p]);
+            totals.addAndGet(players, result.submitted);
+            totals.addAndGet(players + 1, result.cancelled);
+        })).get();
+        long[] result = new long[players + 2];
+        for (int i = 0; i < result.length; i++) result[i] = totals.get(i);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("Usage: BoggleGame wordFile [players] [rounds] [threads]");
+            System.exit(-1);
+        }
+        int players = args.length >= 2 ? Integer.parseInt(args[1]) : 4;
+        long rounds = args.length >= 3 ? Long.parseLong(args[2]) : 10000;
+        int threads = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        // bots from weak and terse to strong and verbose
+        List<Bot> bots = new ArrayList<>();
+        for (int p = 0; p < players; p++) {
+            double step = players == 1 ? 1 : (double) p / (players - 1);
+            bots.add(new Bot("bot" + (p + 1), 0.5 + 0.45 * step, 10 + (int) (30 * step)));
+        }
+        BoggleGame game = new BoggleGame(new BogglePlayer(args[0]), bots);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        game.playRounds(0, Math.min(rounds, 1000), pool); // warm up
+        long start = System.nanoTime();
+        long[] totals = game.playRounds(1000, rounds, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%d rounds, %d players, %d threads: %.2f s, %.0f rounds/s\n",
+                          rounds, players, threads, seconds, rounds / seconds);
+        for (int p = 0; p < players; p++) {
+            Bot bot = bots.get(p);
+            System.out.printf("  %-6s skill %.2f, max %2d words: %.2f points/round\n",
+                              bot.name, bot.skill, bot.maxWords, (double) totals[p] / rounds);
+        }
+        System.out.printf("  words submitted/round: %.2f, shared (scored zero)/round: %.2f\n",
+                          (double) totals[players] / rounds, (double) totals[players + 1] / rounds);
     }
 }
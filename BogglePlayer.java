@@ -22,160 +22,309 @@
   
   Optimization: The DFS now passes the current TrieNode instead of rechecking the entire prefix
   from the root each time a new letter is added.
+
+  Optimization: The first two and three cells of a path are looked up in a dense prefix table
+  (indexed by tile, 32^2 and 32^3 entries) that points straight at the Trie node, or is empty for
+  dead prefixes, so the search starts from valid cell pairs and triples.
+
+  Optimization: Every Trie node knows the letters all words below it still need. The DFS keeps the
+  letters of the unvisited cells as a bit mask and cuts branches that need a letter no longer available.
+
+  Optimization: Multi-letter tiles (QU, and TH, IN, ER, HE, AN in the extended set) are precompiled
+  into tile edges of the Trie, so every cell, whatever it spells, costs one child lookup in the DFS.
 */
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
-public class BogglePlayer {
+public class BogglePlayer implements BoggleSolver {
   // Trie data structure for dictionary lookup
   private CompressedTrie root;
+  // Time of every getWords call
+  private final LatencyHistogram latency = new LatencyHistogram();
 
   // Direction arrays for the 8 adjacent cells (horizontal, vertical, diagonal)
-  private static final int[] ROW_DIR = { -1, -1, -1, 0, 0, 1, 1, 1 };
-  private static final int[] COL_DIR = { -1, 0, 1, -1, 1, -1, 0, 1 };
+  static final int[] ROW_DIR = { -1, -1, -1, 0, 0, 1, 1, 1 };
+  static final int[] COL_DIR = { -1, 0, 1, -1, 1, -1, 0, 1 };
 
-  // Initialize BogglePlayer with a file of English words
+  // Initialize BogglePlayer with a file of English words, for classic boards (Q is QU)
   public BogglePlayer(String wordFile) {
-    root = new CompressedTrie();
-    try {
-      // Read the dictionary file
-      BufferedReader reader = new BufferedReader(new FileReader(wordFile));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        // Convert to uppercase and insert into Trie
+    this(wordFile, TileSet.CLASSIC);
+  }
 
-        if (line.length() > 2) root.insert(line.toUpperCase());
-      }
-      reader.close();
+  // Initialize BogglePlayer for boards made of the given tiles
+  public BogglePlayer(String wordFile, TileSet tiles) {
+    try {
+      // Memory-map the dictionary file and build the first-letter sub-tries in parallel
+      root = DictionaryLoader.load(wordFile, tiles);
     } catch (IOException e) {
       System.err.println("Error reading dictionary file: " + e.getMessage());
+      root = new CompressedTrie(tiles);
     }
   }
 
  
 
+  // The dictionary trie, e.g. for memory accounting
+  public CompressedTrie getDictionary() {
+    return root;
+  }
+
+  // getWords latencies so far, to dump percentiles on demand
+  public LatencyHistogram getLatencyHistogram() {
+    return latency;
+  }
+
+  // Add and remove (e.g. ban) words without rebuilding the dictionary. The batch is
+  // applied on a background thread and published as a new trie snapshot; solves
+  // already running keep the snapshot they started with.
+  public CompletableFuture<Void> updateDictionary(Collection<String> added, Collection<String> removed) {
+    return root.applyBatchAsync(normalize(added), normalize(removed));
+  }
+
+  // Uppercase the words and drop the ones the dictionary would never hold
+  private static List<String> normalize(Collection<String> words) {
+    List<String> result = new ArrayList<>(words.size());
+    for (String w : words) {
+      String upper = w.toUpperCase();
+      if (upper.length() > 2 && upper.chars().allMatch(c -> c >= 'A' && c <= 'Z')) result.add(upper);
+    }
+    return result;
+  }
+
   // Based on the board, find valid words
   public Word[] getWords(char[][] board) {
-    // Use a Set to efficiently track duplicates
-    Set<String> foundWordStrings = new HashSet<>();
-
-    // PriorityQueue to store found words prioritized by score (longer words first)
-    PriorityQueue<Word> foundWords = new PriorityQueue<>(
-          Comparator.comparingInt((Word w) -> w.getWord().length())
-                   .thenComparing(Word::getWord)
-      );
+    return getWords(board, 20);
+  }
 
-    // Visited cells matrix to track the path
-    boolean[][] visited = new boolean[4][4];
-    Node tempRoot = root.getRoot();
+  // Find up to maxWords of the longest words on the board (Integer.MAX_VALUE for all of them)
+  public Word[] getWords(char[][] board, int maxWords) {
+    return getWords(board, maxWords, true);
+  }
 
-    // Try starting DFS from each cell on the board
-    for (int i = 0; i < 4; i++) {
-      for (int j = 0; j < 4; j++) {
-        StringBuilder currentWord = new StringBuilder();
-        ArrayList<Location> currentPath = new ArrayList<>();
+  // getWords with record false leaves the call out of the latency histogram and
+  // JFR, for measurement runs that repeat a board (see test.java)
+  Word[] getWords(char[][] board, int maxWords, boolean record) {
+    long start = System.nanoTime();
+    // no event until a recording exists (see SolverEvents.enabled)
+    SolverEvents.BoardSolve event = record && SolverEvents.enabled() ? new SolverEvents.BoardSolve() : null;
+    if (event != null) event.begin();
 
-        // Start DFS from this cell with the root node of the Trie
-        dfs(board, i, j, visited, currentWord, currentPath, foundWords, foundWordStrings, tempRoot);
-        if (foundWords.size() == 20 && foundWords.peek().getWord().length() > 4) break;
-      }
-    }
+    Search search = search(board, maxWords);
 
-    // Extract the top 20 words (at most) from the priority queue
-    Word[] myWords = new Word[Math.min(20, foundWords.size())];
+    // Extract the top maxWords words (at most) from the priority queue
+    Word[] myWords = new Word[Math.min(maxWords, search.foundWords.size())];
     for (int i = 0; i < myWords.length; i++) {
-      myWords[i] = foundWords.poll();
+      myWords[i] = search.foundWords.poll();
       //System.out.println(myWords[i].getWord());
     }
 
+    if (record) latency.record(System.nanoTime() - start);
+    if (event != null) event.end();
+    if (event != null && event.shouldCommit()) {
+      event.engine = "BogglePlayer";
+      event.board = SolverEvents.boardId(board);
+      event.maxWords = maxWords;
+      event.nodesVisited = search.nodesVisited;
+      event.wordsFound = search.foundWordStrings.size();
+      event.commit();
+    }
     return myWords;
   }
 
-// DFS to find words on the board - OPTIMIZED to pass the current TrieNode
-private void dfs(char[][] board, int row, int col, boolean[][] visited,
-StringBuilder currentWord, ArrayList<Location> currentPath,
-PriorityQueue<Word> foundWords, Set<String> foundWordStrings, Node currentNode) {
+  // The search getWords runs, returned as is so tools can read its counters
+  // (nodesVisited, foundWordStrings) without the result being built
+  Search search(char[][] board, int maxWords) {
+    // Read the snapshot once so a concurrent dictionary update can't change it mid-solve;
+    // the prefix table always belongs to the root it carries
+    PrefixTable prefixes = root.getPrefixTable();
+    Search search = new Search(board, maxWords, root.getTileSet());
 
-// Bounds check
-if (row < 0 || row >= 4 || col < 0 || col >= 4 || visited[row][col]) {
-return;
-}
+    // Try starting from each cell on the board; the first two or three tiles
+    // come straight from the prefix table instead of walking down from the root
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        int first = search.tileIds[i][j];
+        if (first < 0 || prefixes.single(first) == null) continue; // no word starts with this tile
+
+        search.enter(i, j);
+        for (int d = 0; d < 8; d++) {
+          int row2 = i + ROW_DIR[d];
+          int col2 = j + COL_DIR[d];
+          if (row2 < 0 || row2 >= 4 || col2 < 0 || col2 >= 4) continue;
+          int second = search.tileIds[row2][col2];
+          if (second < 0) continue;
+          Node pairNode = prefixes.pair(first, second);
+          if (pairNode == null) continue;
+
+          search.enter(row2, col2);
+          if (pairNode.isWord) search.addWord(); // only possible with a multi-letter tile
+          for (int e = 0; e < 8; e++) {
+            int row3 = row2 + ROW_DIR[e];
+            int col3 = col2 + COL_DIR[e];
+            if (row3 < 0 || row3 >= 4 || col3 < 0 || col3 >= 4 || search.visited[row3][col3]) continue;
+            Node tripleNode = prefixes.triple(first, second, search.tileIds[row3][col3]);
+            if (tripleNode == null) continue;
+
+            search.enter(row3, col3);
+            dfs(search, row3, col3, tripleNode);
+            search.leave(row3, col3);
+          }
+          search.leave(row2, col2);
+        }
+        search.leave(i, j);
+
+        if (search.foundWords.size() == maxWords && search.foundWords.peek().getWord().length() > 4) break;
+      }
+    }
+    return search;
+  }
+
+  // All words on the board that satisfy a query (see BoardQuery), shortest first;
+  // the constraints prune the search, so selective queries cost less than a full solve
+  public Word[] query(char[][] board, BoardQuery query) {
+    return query.run(root.getRoot(), root.getTileSet(), board);
+  }
 
-// Get the current letter
-char letter = board[row][col];
+  // DFS to find words on the board - OPTIMIZED to pass the current TrieNode.
+  // The cell at (row, col) is already on the path and node is the Trie node
+  // for the letters spelled so far.
+  private void dfs(Search search, int row, int col, Node node) {
+    // Every word below this node needs letters that no unvisited cell has left
+    if ((node.requiredMask & ~search.available) != 0) {
+      return;
+    }
 
-// Check if this letter exists in the Trie from our current position
-int idx = letter - 'A';
-Node nextNode = currentNode.children[idx];
+    // Check if we've found a complete word of at least 3 letters
+    if (node.isWord) {
+      search.addWord();
+    }
 
-// If letter doesn't exist in Trie at this point, backtrack immediately
-if (nextNode == null) {
-return;
-}
+    // Continue DFS in all 8 directions with the next node in the Trie
+    for (int i = 0; i < 8; i++) {
+      int newRow = row + ROW_DIR[i];
+      int newCol = col + COL_DIR[i];
 
-// Special case for Q - we need to check if U exists after Q
-if (letter == 'Q') {
-Node uNode = nextNode.children['U'-'A'];
-if (uNode == null) {
-  return; // U doesn't follow Q in the Trie, so this path is invalid
-}
-nextNode = uNode; // Move to the node after U
-currentWord.append("QU");
-} else {
-currentWord.append(letter);
-}
+      // Bounds check
+      if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4 || search.visited[newRow][newCol]) {
+        continue;
+      }
 
-// Add current position to the path
-currentPath.add(new Location(row, col));
+      // If the cell's tile doesn't continue a word in the Trie, skip it
+      Node nextNode = node.child(search.tileIds[newRow][newCol]);
+      if (nextNode == null) {
+        continue;
+      }
 
-// Mark current cell as visited
-visited[row][col] = true;
+      search.enter(newRow, newCol);
+      dfs(search, newRow, newCol, nextNode);
+      // Backtrack: remove the letter and mark the cell as unvisited
+      search.leave(newRow, newCol);
+    }
+  }
 
-// Check if we've found a complete word of at least 3 letters
-if (nextNode.isWord) {
-String wordFound = currentWord.toString();
-// Only add if we haven't seen this word before
-if (!foundWordStrings.contains(wordFound)) {
-  foundWordStrings.add(wordFound);
+  // State of one getWords call (also used by the other solver engines)
+  static class Search {
+    final char[][] board;
+    final int maxWords;
+    // Tile id and letters of each cell; cells that aren't tiles start out visited
+    final int[][] tileIds = new int[4][4];
+    final String[][] cellLetters = new String[4][4];
+    // Visited cells matrix to track the path
+    final boolean[][] visited = new boolean[4][4];
+    // Letters on the unvisited cells: count per letter, and the mask of the ones left
+    final int[] letterCounts = new int[26];
+    int available;
+    final StringBuilder currentWord = new StringBuilder();
+    final ArrayList<Location> currentPath = new ArrayList<>();
+    // Cells entered so far, i.e. trie nodes the search stepped into
+    long nodesVisited;
+    // Use a Set to efficiently track duplicates
+    final Set<String> foundWordStrings = new HashSet<>();
+    // PriorityQueue to store found words prioritized by score (longer words first)
+    final PriorityQueue<Word> foundWords = new PriorityQueue<>(
+          Comparator.comparingInt((Word w) -> w.getWord().length())
+                   .thenComparing(Word::getWord)
+      );
 
-  // Create a Word object
-  Word word = new Word(wordFound);
+    Search(char[][] board, int maxWords, TileSet tiles) {
+      this.board = board;
+      this.maxWords = maxWords;
+      for (int i = 0; i < 4; i++) {
+        for (int j = 0; j < 4; j++) {
+          tileIds[i][j] = tiles.tileId(board[i][j]);
+          cellLetters[i][j] = tiles.spell(board[i][j]);
+          if (cellLetters[i][j] == null) {
+            visited[i][j] = true;
+          } else {
+            addLetters(cellLetters[i][j], 1);
+          }
+        }
+      }
+    }
 
-  // Deep copy of the current path to store in the Word object
-  ArrayList<Location> pathCopy = new ArrayList<>();
-  for (Location loc : currentPath) {
-    pathCopy.add(new Location(loc.row, loc.col));
-  }
+    // Count the letters a cell spells in or out of the unvisited ones
+    private void addLetters(String letters, int delta) {
+      for (int i = 0; i < letters.length(); i++) {
+        addLetter(letters.charAt(i) - 'A', delta);
+      }
+    }
 
-  word.setPath(pathCopy);
-  // Add to our collection of found words, automatically keeps foundWords to size of 20 max with min heap
-  if (foundWords.size() != 20) {
-    foundWords.add(word);
-  }
-  else if (foundWords.peek().getWord().length() < word.getWord().length()) {
-    foundWords.poll();
-    foundWords.add(word);
-  }
-}
-}
+    private void addLetter(int idx, int delta) {
+      letterCounts[idx] += delta;
+      if (letterCounts[idx] == 0) {
+        available &= ~(1 << idx);
+      } else {
+        available |= 1 << idx;
+      }
+    }
 
-// Continue DFS in all 8 directions with the next node in the Trie
-for (int i = 0; i < 8; i++) {
-int newRow = row + ROW_DIR[i];
-int newCol = col + COL_DIR[i];
+    // Add a cell to the path
+    void enter(int row, int col) {
+      String letters = cellLetters[row][col];
+      currentWord.append(letters);
+      currentPath.add(new Location(row, col));
+      visited[row][col] = true;
+      addLetters(letters, -1);
+      nodesVisited++;
+    }
 
-dfs(board, newRow, newCol, visited, currentWord, currentPath, foundWords, foundWordStrings, nextNode);
-}
+    // Remove the last cell from the path
+    void leave(int row, int col) {
+      String letters = cellLetters[row][col];
+      addLetters(letters, 1);
+      currentWord.setLength(currentWord.length() - letters.length()); // Remove the cell's letters
+      currentPath.remove(currentPath.size() - 1);
+      visited[row][col] = false;
+    }
 
-// Backtrack: remove the current letter and mark cell as unvisited
-if (letter == 'Q') {
-currentWord.setLength(currentWord.length() - 2); // Remove QU
-} else {
-currentWord.setLength(currentWord.length() - 1); // Remove the letter
-}
+    // Record the word spelled by the current path
+    void addWord() {
+      String wordFound = currentWord.toString();
+      // Only add if we haven't seen this word before
+      if (!foundWordStrings.add(wordFound)) {
+        return;
+      }
+
+      // Create a Word object
+      Word word = new Word(wordFound);
+
+      // Deep copy of the current path to store in the Word object
+      ArrayList<Location> pathCopy = new ArrayList<>(currentPath.size());
+      for (Location loc : currentPath) {
+        pathCopy.add(new Location(loc.row, loc.col));
+      }
 
-currentPath.remove(currentPath.size() - 1);
-visited[row][col] = false;
+      word.setPath(pathCopy);
+      // Add to our collection of found words, automatically keeps foundWords to size of maxWords with min heap
+      if (foundWords.size() != maxWords) {
+        foundWords.add(word);
+      }
+      else if (foundWords.peek().getWord().length() < word.getWord().length()) {
+        foundWords.poll();
+        foundWords.add(word);
+      }
+    }
+  }
 }
-}
\ No newline at end of file
@@ -0,0 +1,152 @@
+import java.io.*;
+import java.util.*;
+
+/*
+  The evaluator's scoring rules, usable by the other tools.
+
+  Same rules and penalties as calculatePoints/checkForWordValidity in
+  EvalBogglePlayer and test.java, except that the dictionary is a HashSet
+  instead of a list scan, and that a cell may spell any tile of a TileSet
+  (the evaluator only knows the classic Q = QU). The dictionary is read
+  independently of any engine, so engines are checked against the word
+  file itself.
+*/
+public class BoggleScorer {
+    private final Set<String> dictionary = new HashSet<>();
+    private final TileSet tiles;
+
+    /**
+     * Read the dictionary, for classic boards
+     *
+     * @param wordFile file with one word per line
+     * @throws IOException if the file can't be read
+     */
+    public BoggleScorer(String wordFile) throws IOException {
+        this(wordFile, TileSet.CLASSIC);
+    }
+
+    /**
+     * Read the dictionary
+     *
+     * @param wordFile file with one word per line
+     * @param tiles    tiles the boards are made of
+     * @throws IOException if the file can't be read
+     */
+    public BoggleScorer(String wordFile, TileSet tiles) throws IOException {
+        this.tiles = tiles;
+        try (BufferedReader file = new BufferedReader(new FileReader(wordFile))) {
+            String line;
+            while ((line = file.readLine()) != null) {
+                dictionary.add(line.toUpperCase());
+            }
+        }
+    }
+
+    /**
+     * Points for a valid word
+     *
+     * @param word the word
+     * @return (length - 2)^2
+     */
+    public static int wordPoints(String word) {
+        return (word.length() - 2) * (word.length() - 2);
+    }
+
+    /**
+     * Calculates the points for the words found on the board
+     *
+     * @param words The list of words whose points are to be calculated
+     * @param board The board on which the words were found
+     * @return Returns the number of points
+     */
+    public int calculatePoints(Word[] words, char[][] board) {
+        int points = 0;
+        if (words == null) {
+            return 0;
+        }
+
+        int wordListLen = words.length;
+        if (wordListLen > 20) {
+            points -= (wordListLen - 20);  // Penalty if more than 20 words were returned
+            wordListLen = 20;              // only the first 20 are counted
+        }
+
+        for (int index = 0; index < wordListLen; index++) {
+            Word w = words[index];
+            if (w != null) {
+                // Check if the word is unique
+                boolean duplicate = false;
+                for (int i = 0; i < index; i++) {
+                    if (words[i] != null && w.getWord().equals(words[i].getWord())) {
+                        duplicate = true;
+                        break;
+                    }
+                }
+
+                // If the word is duplicate then give penalty, else check if word is valid
+                if (duplicate) {
+                    points -= (w.getPathLength() - 2) * (w.getPathLength() - 2);
+                } else {
+                    points += checkForWordValidity(w, board);
+                }
+            } else { // word is null
+                points--;
+            }
+        }
+
+        return Math.max(points, 0);
+    }
+
+    /**
+     * Checks if the word is valid and assigns positive points for valid word and negative points for invalid word
+     *
+     * @param word  The word that is to be evaluated
+     * @param board The board on which the word was found
+     * @return Positive or negative points for the word
+     */
+    public int checkForWordValidity(Word word, char[][] board) {
+        String text = word.getWord();
+        int length = text.length();
+        int penalty = -wordPoints(text);
+
+        // Check if the path spells as many letters as the word has
+        int spelledLength = 0;
+        for (int i = 0; i < word.getPathLength(); i++) {
+            int row = word.getLetterRow(i);
+            int col = word.getLetterCol(i);
+            if (row < 0 || row >= 4 || col < 0 || col >= 4) return penalty;
+            String spelled = tiles.spell(board[row][col]);
+            if (spelled == null) return penalty;
+            spelledLength += spelled.length();
+        }
+        if (length != spelledLength) return penalty;
+
+        // Check if word has at least 3 letters and at most 16 characters
+        if (length < 3) return -1;
+        if (length > 16) return penalty;
+
+        // Check if the letters of the word are adjacent on the board
+        for (int i = 1; i < word.getPathLength(); i++) {
+            Location l1 = word.getLetterLocation(i - 1), l2 = word.getLetterLocation(i);
+            if (l1 == null || l2 == null) return penalty;
+            int dr = l1.row - l2.row, dc = l1.col - l2.col;
+            if (dr * dr + dc * dc > 2) return penalty;
+        }
+
+        // Check each letter on the board is used at most once and matches the board
+        boolean[][] used = new boolean[4][4];
+        for (int i = 0, letterIndex = 0; i < word.getPathLength(); i++) {
+            int row = word.getLetterRow(i);
+            int col = word.getLetterCol(i);
+            String spelled = tiles.spell(board[row][col]);
+            if (used[row][col] || !text.startsWith(spelled, letterIndex)) return penalty;
+            used[row][col] = true;
+            letterIndex += spelled.length();
+        }
+
+        // Check if word exists in the dictionary
+        if (!dictionary.contains(text.toUpperCase())) return penalty;
+
+        return wordPoints(text);
+    }
+}
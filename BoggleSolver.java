@@ -0,0 +1,39 @@
+import java.lang.reflect.*;
+
+/*
+  A Boggle solving engine.
+
+  Engines build their dictionary in a public constructor that takes the
+  word file name, so the evaluators can load any engine by class name.
+  getWords must be safe to call from several threads.
+*/
+public interface BoggleSolver {
+    /**
+     * Find up to 20 words on the board
+     *
+     * @param board 4x4 board of tiles (see TileSet; classic: uppercase letters, a Q cell is QU)
+     * @return the words found, each with its path
+     */
+    Word[] getWords(char[][] board);
+
+    /**
+     * Create an engine by class name through its (String wordFile) constructor
+     *
+     * @param className engine class, e.g. "BogglePlayer"
+     * @param wordFile  dictionary file
+     * @return the engine
+     * @throws ReflectiveOperationException if the class can't be loaded or built
+     */
+    static BoggleSolver create(String className, String wordFile) throws ReflectiveOperationException {
+        Class<?> type = Class.forName(className);
+        if (!BoggleSolver.class.isAssignableFrom(type)) {
+            throw new ClassCastException(className + " does not implement BoggleSolver");
+        }
+        try {
+            return (BoggleSolver) type.getConstructor(String.class).newInstance(wordFile);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+  Head-to-head comparison of solver engines.
+
+  Usage: CompareSolvers wordFile numSeeds startSeed engineClass [engineClass ...]
+
+  Every engine is loaded by class name (see BoggleSolver.create), one after
+  the other, so the memory each one retains can be measured: heap in use
+  after a full GC plus direct (off-heap) buffer memory, before and after
+  construction.
+
+  The engines then run in parallel, one thread each, on the same seeded
+  boards: a warmup pass, then a measured pass. Time is thread CPU time and
+  allocation is per-thread allocated bytes, so they stay per-engine while
+  the engines run side by side. Results are scored with the evaluator's
+  rules, and any board where an engine scores differently from the first
+  engine is reported.
+*/
+public class CompareSolvers {
+    // What one engine did over all boards
+    private static class Run {
+        final String name;
+        long memory;
+        long cpuNanos;
+        long allocated;
+        int[] points;
+
+        Run(String name) {
+            this.name = name;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: CompareSolvers wordFile numSeeds startSeed engineClass [engineClass ...]");
+            System.exit(-1);
+        }
+        String wordFile = args[0];
+        int numSeeds = Integer.parseInt(args[1]);
+        long startSeed = Long.parseLong(args[2]);
+
+        BoggleScorer scorer = new BoggleScorer(wordFile);
+        char[][][] boards = new char[numSeeds][][];
+        for (int i = 0; i < numSeeds; i++) boards[i] = BoggleBoards.randomBoard(startSeed + i);
+
+        // load one by one to attribute memory
+        List<BoggleSolver> engines = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            Run run = new Run(args[i]);
+            long before = usedMemory();
+            engines.add(BoggleSolver.create(args[i], wordFile));
+            run.memory = usedMemory() - before;
+            runs.add(run);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(engines.size());
+        List<Future<?>> done = new ArrayList<>();
+        for (int e = 0; e < engines.size(); e++) {
+            BoggleSolver engine = engines.get(e);
+            Run run = runs.get(e);
+            done.add(pool.submit(() -> solveAll(engine, run, boards, scorer)));
+        }
+        for (Future<?> f : done) f.get();
+        pool.shutdown();
+
+        System.out.printf("%d boards (seeds %d..%d)\n", numSeeds, startSeed, startSeed + numSeeds - 1);
+        System.out.printf("%-24s %10s %12s %14s %14s %10s\n",
+                          "engine", "points", "time (s)", "alloc B/board", "memory (B)", "disagree");
+        Run reference = runs.get(0);
+        for (Run run : runs) {
+            long total = 0;
+            int disagree = 0;
+            for (int b = 0; b < numSeeds; b++) {
+                total += run.points[b];
+                if (run.points[b] != reference.points[b]) disagree++;
+            }
+            System.out.printf("%-24s %10d %12.4f %14d %14d %10d\n", run.name, total, run.cpuNanos / 1e9,
+                              run.allocated / numSeeds, run.memory, disagree);
+        }
+
+        // name the first few boards where the engines don't agree
+        boolean allAgree = true;
+        for (Run run : runs) {
+            int shown = 0;
+            for (int b = 0; b < numSeeds && shown < 5; b++) {
+                if (run.points[b] != reference.points[b]) {
+                    System.out.printf("  %s: seed %d scores %d, %s scores %d\n", run.name, startSeed + b,
+                                      run.points[b], reference.name, reference.points[b]);
+                    shown++;
+                    allAgree = false;
+                }
+            }
+        }
+        if (allAgree) System.out.println("All engines agree on every board.");
+
+        for (BoggleSolver engine : engines) {
+            if (engine instanceof AutoCloseable) ((AutoCloseable) engine).close();
+        }
+    }
+
+    private static void solveAll(BoggleSolver engine, Run run, char[][][] boards, BoggleScorer scorer) {
+        for (char[][] board : boards) engine.getWords(copy(board)); // warmup
+
+        char[][][] copies = new char[boards.length][][];
+        for (int b = 0; b < boards.length; b++) copies[b] = copy(boards[b]);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Word[][] results = new Word[boards.length][];
+        long start = bean.getCurrentThreadCpuTime();
+        run.allocated = TrieMemoryReport.allocatedBytes(() -> {
+            for (int b = 0; b < boards.length; b++) results[b] = engine.getWords(copies[b]);
+        });
+        run.cpuNanos = bean.getCurrentThreadCpuTime() - start;
+
+        run.points = new int[boards.length];
+        for (int b = 0; b < boards.length; b++) run.points[b] = scorer.calculatePoints(results[b], boards[b]);
+    }
+
+    // engines get their own copy, so they can't change the board that is scored
+    private static char[][] copy(char[][] board) {
+        char[][] c = new char[4][];
+        for (int i = 0; i < 4; i++) c[i] = board[i].clone();
+        return c;
+    }
+
+    // Heap in use after GC plus direct buffer memory
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            Thread.sleep(50);
+        }
+        long direct = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) direct = pool.getMemoryUsed();
+        }
+        return runtime.totalMemory() - runtime.freeMemory() + direct;
+    }
+}
@@ -1,23 +1,195 @@
+import java.util.*;
+import java.util.concurrent.*;
+
 public class CompressedTrie {
-    private final Node root;
+    // Single background thread that applies dictionary updates, so batches are
+    // serialized and never run on a solver thread
+    private static final ExecutorService UPDATER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dictionary-updater");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Current published snapshot. Nodes reachable from a published root are
+    // never modified again; updates copy the nodes on the changed paths and
+    // swap in a new root, sharing every untouched subtree with the old one.
+    private volatile Node root;
+    // Prefix table of the published root; solvers read the root through it so
+    // the two always match. Only written under the trie lock, together with
+    // the root, so a table built for an old root can't replace a newer one.
+    private volatile PrefixTable prefixes;
+    // Board tiles the nodes keep tile edges for (see Node.updateTileEdges)
+    private final TileSet tiles;
     public CompressedTrie() {
-            root = new Node();
+            this(TileSet.CLASSIC);
         }
 
+    public CompressedTrie(TileSet tiles) {
+        this.tiles = tiles;
+        root = new Node();
+        prefixes = new PrefixTable(root, tiles);
+    }
+
+    // Wrap a root built elsewhere (see DictionaryLoader) and fill in the
+    // required letter masks and tile edges
+    CompressedTrie(Node root, TileSet tiles) {
+        this.root = root;
+        this.tiles = tiles;
+        updateDerived(root, tiles);
+        prefixes = new PrefixTable(root, tiles);
+    }
+
     // Insert a word into the Trie
-    public void insert(String word) {
+    // (build-time only: mutates in place, use applyBatch once solvers share the trie)
+    public synchronized void insert(String word) {
         Node current = root;
-        for (char c : word.toCharArray()) {
-            int idx = c - 'A';
-            if (current.children[idx] == null) {
-                current.children[idx] = new Node();
+        Node[] path = new Node[word.length() + 1];
+        path[0] = current;
+        for (int i = 0; i < word.length(); i++) {
+            int idx = word.charAt(i) - 'A';
+            Node next = current.child(idx);
+            if (next == null) {
+                next = new Node();
+                current.put(idx, next);
             }
-            current = current.children[idx];
+            current = next;
+            path[i + 1] = current;
         }
         current.isWord = true;
+        // masks and tile edges depend on the children, so refresh them bottom-up
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i].updateRequiredMask();
+            path[i].updateTileEdges(tiles);
+        }
+        // rebuilt on the next solve rather than once per inserted word
+        prefixes = null;
+    }
+
+    // Check whether a word (uppercase A-Z) is in the current snapshot
+    public boolean contains(String word) {
+        return contains(root, word);
+    }
+
+    // Apply a batch of inserts and deletes and publish the result as a new
+    // snapshot. Solvers holding the previous root keep seeing it unchanged.
+    public synchronized void applyBatch(Collection<String> inserts, Collection<String> deletes) {
+        Set<Node> fresh = Collections.newSetFromMap(new IdentityHashMap<>());
+        Node next = root;
+        for (String word : inserts) {
+            if (!contains(next, word)) {
+                next = insertCopy(next, word, 0, fresh, tiles);
+            }
+        }
+        for (String word : deletes) {
+            if (contains(next, word)) {
+                next = deleteCopy(next, word, 0, fresh, tiles);
+                if (next == null) next = new Node();
+            }
+        }
+        root = next;
+        // build the new table here rather than on the first solve after the swap
+        prefixes = new PrefixTable(next, tiles);
+    }
+
+    // Queue a batch on the updater thread; the future completes once the new
+    // snapshot is published
+    public CompletableFuture<Void> applyBatchAsync(Collection<String> inserts, Collection<String> deletes) {
+        return CompletableFuture.runAsync(() -> applyBatch(inserts, deletes), UPDATER);
+    }
+
+    // Check whether a word is in the snapshot under current
+    static boolean contains(Node current, String word) {
+        Node end = find(current, word);
+        return end != null && end.isWord;
+    }
+
+    // Node reached by walking the word from current, or null
+    private static Node find(Node current, String word) {
+        for (int i = 0; i < word.length() && current != null; i++) {
+            current = current.child(word.charAt(i) - 'A');
+        }
+        return current;
+    }
+
+    // Copy (at most once per batch) every node on the word's path, then mark the end.
+    // Tile edges can only change on the path, since they point at most a tile's
+    // length down from the node holding them.
+    private static Node insertCopy(Node node, String word, int i, Set<Node> fresh, TileSet tiles) {
+        Node copy = writable(node, fresh);
+        if (i == word.length()) {
+            copy.isWord = true;
+            copy.requiredMask = 0;
+            return copy;
+        }
+        int idx = word.charAt(i) - 'A';
+        Node child = copy.child(idx);
+        if (child == null) {
+            child = new Node();
+            fresh.add(child);
+        }
+        copy.put(idx, insertCopy(child, word, i + 1, fresh, tiles));
+        copy.updateRequiredMask();
+        copy.updateTileEdges(tiles);
+        return copy;
+    }
+
+    // Copy the word's path, unmark the end and prune nodes left without words;
+    // returns null when the node itself is no longer needed
+    private static Node deleteCopy(Node node, String word, int i, Set<Node> fresh, TileSet tiles) {
+        Node copy = writable(node, fresh);
+        if (i == word.length()) {
+            copy.isWord = false;
+        } else {
+            int idx = word.charAt(i) - 'A';
+            Node child = deleteCopy(copy.child(idx), word, i + 1, fresh, tiles);
+            if (child == null) {
+                copy.remove(idx);
+            } else {
+                copy.put(idx, child);
+            }
+        }
+        copy.updateRequiredMask();
+        copy.updateTileEdges(tiles);
+        return (copy.isWord || copy.childCount() > 0) ? copy : null;
+    }
+
+    // Post-order pass over a whole subtree
+    static void updateDerived(Node node, TileSet tiles) {
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+            updateDerived(node.child(c), tiles);
+        }
+        node.updateRequiredMask();
+        node.updateTileEdges(tiles);
+    }
+
+    private static Node writable(Node node, Set<Node> fresh) {
+        if (fresh.contains(node)) return node;
+        Node copy = node.copy();
+        fresh.add(copy);
+        return copy;
     }
 
     public Node getRoot() {
         return root;
     }
-}
\ No newline at end of file
+
+    public TileSet getTileSet() {
+        return tiles;
+    }
+
+    public PrefixTable getPrefixTable() {
+        PrefixTable table = prefixes;
+        if (table == null) {
+            // only after insert(); rebuilt under the lock so applyBatch can't
+            // publish a newer root in between
+            synchronized (this) {
+                table = prefixes;
+                if (table == null) {
+                    table = new PrefixTable(root, tiles);
+                    prefixes = table;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+  Parallel dictionary loader.
+
+  The word file is memory-mapped and scanned as raw bytes: no decoding, no
+  String per line, ASCII case-folding done inline. The scan partitions the
+  lines by first letter, then the 26 sub-tries under the root are built in
+  parallel on the fork-join pool and attached to the root at the end.
+
+  Lines are accepted on the same terms as before: longer than 2 letters,
+  terminated by \n, \r\n or \r. Lines with anything but A-Z/a-z are skipped.
+*/
+public class DictionaryLoader {
+    static final int LETTERS = 26;
+
+    private DictionaryLoader() {
+    }
+
+    /**
+     * Build the dictionary trie from a word file, for classic tiles
+     *
+     * @param wordFile file with one word per line
+     * @return the loaded trie
+     * @throws IOException if the file can't be mapped
+     */
+    public static CompressedTrie load(String wordFile) throws IOException {
+        return load(wordFile, TileSet.CLASSIC);
+    }
+
+    /**
+     * Build the dictionary trie from a word file
+     *
+     * @param wordFile file with one word per line
+     * @param tiles    board tiles the trie is searched with
+     * @return the loaded trie
+     * @throws IOException if the file can't be mapped
+     */
+    public static CompressedTrie load(String wordFile, TileSet tiles) throws IOException {
+        // no event until a recording exists (see SolverEvents.enabled)
+        SolverEvents.DictionaryLoad event = SolverEvents.enabled() ? new SolverEvents.DictionaryLoad() : null;
+        if (event != null) event.begin();
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(Paths.get(wordFile), StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        LineList[] byLetter = partition(bytes);
+
+        // one sub-trie per first letter, built concurrently
+        List<ForkJoinTask<Node>> tasks = new ArrayList<>(LETTERS);
+        for (int letter = 0; letter < LETTERS; letter++) {
+            LineList lines = byLetter[letter];
+            tasks.add(lines.size == 0 ? null
+                      : ForkJoinPool.commonPool().submit(() -> buildSubTrie(bytes, lines)));
+        }
+
+        Node root = new Node();
+        for (int letter = 0; letter < LETTERS; letter++) {
+            if (tasks.get(letter) != null) {
+                root.put(letter, tasks.get(letter).join());
+            }
+        }
+        CompressedTrie trie = new CompressedTrie(root, tiles);
+
+        if (event != null) event.end();
+        if (event != null && event.shouldCommit()) {
+            event.wordFile = wordFile;
+            event.fileBytes = bytes.limit();
+            for (LineList lines : byLetter) event.words += lines.size;
+            event.commit();
+        }
+        return trie;
+    }
+
+    // Single pass over the bytes, recording (start, length) of every accepted line
+    // (also used by OffHeapTrie.load)
+    static LineList[] partition(ByteBuffer bytes) {
+        LineList[] byLetter = new LineList[LETTERS];
+        for (int letter = 0; letter < LETTERS; letter++) {
+            byLetter[letter] = new LineList();
+        }
+        int limit = bytes.limit();
+        int start = 0;
+        boolean letters = true;
+        for (int pos = 0; pos <= limit; pos++) {
+            byte b = pos < limit ? bytes.get(pos) : (byte) '\n';
+            if (b == '\n' || b == '\r') {
+                int length = pos - start;
+                if (letters && length > 2) {
+                    byLetter[(bytes.get(start) & 0xDF) - 'A'].add(start, length);
+                }
+                start = pos + 1;
+                letters = true;
+            } else if (((b & 0xDF) < 'A') || ((b & 0xDF) > 'Z')) {
+                letters = false;
+            }
+        }
+        return byLetter;
+    }
+
+    // Insert every line of one partition below a fresh node, skipping the first letter
+    static Node buildSubTrie(ByteBuffer bytes, LineList lines) {
+        Node subRoot = new Node();
+        for (int i = 0; i < lines.size; i++) {
+            int start = lines.starts[i];
+            int end = start + lines.lengths[i];
+            Node current = subRoot;
+            for (int pos = start + 1; pos < end; pos++) {
+                int idx = (bytes.get(pos) & 0xDF) - 'A';
+                Node next = current.child(idx);
+                if (next == null) {
+                    next = new Node();
+                    current.put(idx, next);
+                }
+                current = next;
+            }
+            current.isWord = true;
+        }
+        return subRoot;
+    }
+
+    // Growable (start, length) pairs without boxing
+    static class LineList {
+        int[] starts = new int[1024];
+        int[] lengths = new int[1024];
+        int size;
+
+        void add(int start, int length) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            starts[size] = start;
+            lengths[size] = length;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+  Evaluation spread over several worker JVMs, driven by a coordinator.
+
+  The coordinator splits the seeds into chunks (ranges of consecutive
+  seeds), listens on a TCP socket and starts the workers: child JVMs on the
+  same class path, or workers started by hand with --worker, from this box
+  or another. Every worker loads the dictionary once and then asks for
+  chunks; it solves each board of a chunk with BogglePlayer, times
+  getWords in thread CPU time like test.java, scores the words with the
+  evaluator's rules (BoggleScorer) and streams the results back. The
+  coordinator merges completed chunks into the global statistics.
+
+  Protocol, big-endian (DataInput/DataOutput):
+    worker:      int magic, int version, long pid           once connected
+    coordinator: byte ASSIGN, long first seed, int count     a chunk
+                 byte DONE                                   no more work
+    worker:      long first seed, int count, then per board
+                 int points, short words, long CPU nanos     a chunk's results
+
+  A chunk only counts once all its boards are back. When a worker's
+  connection breaks or goes silent for longer than the timeout, its chunk
+  goes back to the queue for another worker and the worker is dropped, so
+  every seed is counted exactly once. The run fails when chunks are left
+  and every started worker is gone; with --workers 0 the coordinator waits
+  for external workers instead.
+
+  --crash-worker N makes the first started worker die in the middle of
+  its chunk N (counting from 1), to exercise the reassignment.
+
+  Usage: DistributedEvaluator wordFile numSeeds [startSeed] [--workers N]
+                              [--chunk N] [--port P] [--bind address]
+                              [--timeout seconds] [--crash-worker N]
+         DistributedEvaluator --worker host port wordFile [crashChunk]
+*/
+public class DistributedEvaluator {
+    private static final int MAGIC = 0x42474456; // "BGDV"
+    private static final int VERSION = 1;
+    private static final byte DONE = 0;
+    private static final byte ASSIGN = 1;
+
+    // A range of seeds, the unit of work and of reassignment
+    private static final class Chunk {
+        final int index;
+        final long firstSeed;
+        final int count;
+
+        Chunk(int index, long firstSeed, int count) {
+            this.index = index;
+            this.firstSeed = firstSeed;
+            this.count = count;
+        }
+    }
+
+    // What one connected worker did
+    private static final class WorkerStats {
+        final long pid;
+        final String address;
+        int chunks;
+        long boards;
+        boolean failed;
+
+        WorkerStats(long pid, String address) {
+            this.pid = pid;
+            this.address = address;
+        }
+    }
+
+    private final Deque<Chunk> queue = new ArrayDeque<>();
+    private final boolean[] completed;
+    private int remaining;
+    private int reassigned;
+    private int connected;
+    private final List<WorkerStats> workers = new ArrayList<>();
+    private final int timeoutMillis;
+
+    // global statistics, merged from completed chunks
+    private long boards;
+    private long totalPoints;
+    private long totalWords;
+    private long cpuNanos;
+    private int minPoints = Integer.MAX_VALUE, maxPoints = Integer.MIN_VALUE;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private DistributedEvaluator(long startSeed, long numSeeds, int chunkSize, int timeoutMillis) {
+        int chunks = (int) ((numSeeds + chunkSize - 1) / chunkSize);
+        for (int c = 0; c < chunks; c++) {
+            long first = startSeed + (long) c * chunkSize;
+            queue.add(new Chunk(c, first, (int) Math.min(chunkSize, startSeed + numSeeds - first)));
+        }
+        completed = new boolean[chunks];
+        remaining = chunks;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 1 && args[0].equals("--worker")) {
+            if (args.length < 4) usage();
+            runWorker(args[1], Integer.parseInt(args[2]), args[3], args.length > 4 ? Integer.parseInt(args[4]) : 0);
+            return;
+        }
+        if (args.length < 2) usage();
+        String wordFile = args[0];
+        long numSeeds = Long.parseLong(args[1]);
+        int i = 2;
+        long startSeed = 123456789;
+        if (i < args.length && !args[i].startsWith("--")) startSeed = Long.parseLong(args[i++]);
+        int workerCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int chunkSize = 1000, port = 0, timeout = 60, crashWorker = 0;
+        String bind = null;
+        for (; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--workers": workerCount = Integer.parseInt(args[i + 1]); break;
+                case "--chunk": chunkSize = Integer.parseInt(args[i + 1]); break;
+                case "--port": port = Integer.parseInt(args[i + 1]); break;
+                case "--bind": bind = args[i + 1]; break;
+                case "--timeout": timeout = Integer.parseInt(args[i + 1]); break;
+                case "--crash-worker": crashWorker = Integer.parseInt(args[i + 1]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(-1);
+            }
+        }
+        if (i != args.length) usage();
+
+        DistributedEvaluator coordinator = new DistributedEvaluator(startSeed, numSeeds, chunkSize, timeout * 1000);
+        InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+        long start = System.nanoTime();
+        try (ServerSocket server = new ServerSocket(port, 50, address)) {
+            System.out.println("Coordinator listening on " + server.getInetAddress().getHostAddress() + ":"
+                               + server.getLocalPort() + ", " + coordinator.completed.length + " chunks of up to "
+                               + chunkSize + " seeds");
+            Thread acceptor = new Thread(() -> coordinator.accept(server), "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            List<Process> processes = new ArrayList<>();
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for (int w = 0; w < workerCount; w++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                                 "DistributedEvaluator", "--worker",
+                                                 server.getInetAddress().getHostAddress(),
+                                                 String.valueOf(server.getLocalPort()), wordFile,
+                                                 String.valueOf(w == 0 ? crashWorker : 0))
+                    .inheritIO().start());
+            }
+
+            boolean finished = coordinator.await(processes);
+            for (Process p : processes) {
+                if (!p.waitFor(10, TimeUnit.SECONDS)) p.destroyForcibly();
+            }
+            coordinator.report(System.out, startSeed, numSeeds, System.nanoTime() - start);
+            if (!finished) System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: DistributedEvaluator wordFile numSeeds [startSeed] [--workers N]");
+        System.err.println("                            [--chunk N] [--port P] [--bind address]");
+        System.err.println("                            [--timeout seconds] [--crash-worker N]");
+        System.err.println("       DistributedEvaluator --worker host port wordFile [crashChunk]");
+        System.exit(-1);
+    }
+
+    // Accept workers until the server socket is closed, one thread each
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "coordinator-" + socket.getRemoteSocketAddress());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    // Hand chunks to one worker until the work is done or the worker fails
+    private void serve(Socket socket) {
+        Chunk chunk = null;
+        WorkerStats worker = null;
+        try (Socket s = socket) {
+            s.setSoTimeout(timeoutMillis);
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            // a worker loads its dictionary before it connects, so the handshake is quick
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a worker");
+            worker = register(in.readLong(), s.getRemoteSocketAddress().toString());
+
+            while ((chunk = take()) != null) {
+                out.writeByte(ASSIGN);
+                out.writeLong(chunk.firstSeed);
+                out.writeInt(chunk.count);
+                out.flush();
+                if (in.readLong() != chunk.firstSeed || in.readInt() != chunk.count) {
+                    throw new IOException("worker answered for another chunk");
+                }
+                int[] points = new int[chunk.count];
+                int[] words = new int[chunk.count];
+                long[] nanos = new long[chunk.count];
+                for (int b = 0; b < chunk.count; b++) {
+                    points[b] = in.readInt();
+                    words[b] = in.readShort();
+                    nanos[b] = in.readLong();
+                }
+                complete(chunk, worker, points, words, nanos);
+                chunk = null;
+            }
+            out.writeByte(DONE);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Worker " + (worker == null ? socket.getRemoteSocketAddress() : "pid " + worker.pid)
+                               + " failed: " + e);
+        } finally {
+            unregister(worker, chunk);
+        }
+    }
+
+    private synchronized WorkerStats register(long pid, String address) {
+        WorkerStats worker = new WorkerStats(pid, address);
+        workers.add(worker);
+        connected++;
+        return worker;
+    }
+
+    // A worker is gone; its unfinished chunk goes back to the front of the queue
+    private synchronized void unregister(WorkerStats worker, Chunk unfinished) {
+        if (worker != null) {
+            connected--;
+            worker.failed = unfinished != null;
+        }
+        if (unfinished != null && !completed[unfinished.index]) {
+            queue.addFirst(unfinished);
+            reassigned++;
+            System.err.println("Reassigning seeds " + unfinished.firstSeed + ".."
+                               + (unfinished.firstSeed + unfinished.count - 1));
+        }
+        notifyAll();
+    }
+
+    // Next chunk, waiting while other workers still hold chunks that may come back; null when done
+    private synchronized Chunk take() {
+        while (queue.isEmpty() && remaining > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return queue.poll();
+    }
+
+    private synchronized void complete(Chunk chunk, WorkerStats worker, int[] points, int[] words, long[] nanos) {
+        if (completed[chunk.index]) return;
+        completed[chunk.index] = true;
+        remaining--;
+        worker.chunks++;
+        worker.boards += chunk.count;
+        for (int b = 0; b < chunk.count; b++) {
+            boards++;
+            totalPoints += points[b];
+            totalWords += words[b];
+            cpuNanos += nanos[b];
+            minPoints = Math.min(minPoints, points[b]);
+            maxPoints = Math.max(maxPoints, points[b]);
+            latency.record(nanos[b]);
+        }
+        notifyAll();
+    }
+
+    // Wait for all chunks; false if every started worker died with chunks left
+    private synchronized boolean await(List<Process> processes) throws InterruptedException {
+        while (remaining > 0) {
+            wait(1000);
+            if (remaining > 0 && connected == 0 && !processes.isEmpty()
+                && processes.stream().noneMatch(Process::isAlive)) {
+                System.err.println("All workers are gone, " + remaining + " chunks left unsolved");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private synchronized void report(PrintStream out, long startSeed, long numSeeds, long wallNanos) {
+        out.printf("%d of %d boards (seeds %d..%d) in %.1f s on %d workers, %d chunks reassigned\n", boards,
+                   numSeeds, startSeed, startSeed + numSeeds - 1, wallNanos / 1e9, workers.size(), reassigned);
+        if (boards == 0) return;
+        out.printf("points: total %d, avg %.2f, min %d, max %d\n", totalPoints, (double) totalPoints / boards,
+                   minPoints, maxPoints);
+        out.printf("words: avg %.2f per board\n", (double) totalWords / boards);
+        out.printf("getWords CPU time: total %.3f s, avg %.1f us per board\n", cpuNanos / 1e9,
+                   cpuNanos / 1e3 / boards);
+        out.print("getWords latency: ");
+        latency.print(out);
+        for (WorkerStats worker : workers) {
+            out.printf("  worker pid %d (%s): %d chunks, %d boards%s\n", worker.pid, worker.address, worker.chunks,
+                       worker.boards, worker.failed ? ", failed" : "");
+        }
+    }
+
+    // Worker side: load once, then solve and score chunks until told to stop
+    private static void runWorker(String host, int port, String wordFile, int crashChunk) throws IOException {
+        BogglePlayer player = new BogglePlayer(wordFile);
+        BoggleScorer scorer = new BoggleScorer(wordFile);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(ProcessHandle.current().pid());
+            out.flush();
+            int chunks = 0;
+            while (in.readByte() == ASSIGN) {
+                long first = in.readLong();
+                int count = in.readInt();
+                chunks++;
+                out.writeLong(first);
+                out.writeInt(count);
+                for (int b = 0; b < count; b++) {
+                    if (chunks == crashChunk && b == count / 2) {
+                        out.flush();
+                        Runtime.getRuntime().halt(3); // simulated crash, half a chunk sent
+                    }
+                    char[][] board = BoggleBoards.randomBoard(first + b);
+                    long start = bean.getCurrentThreadCpuTime();
+                    Word[] words = player.getWords(board);
+                    long nanos = bean.getCurrentThreadCpuTime() - start;
+                    out.writeInt(scorer.calculatePoints(words, board));
+                    out.writeShort(words == null ? 0 : words.length);
+                    out.writeLong(nanos);
+                }
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.io.*;
+import java.util.concurrent.atomic.*;
+
+/*
+  Lock-free latency histogram with bounded relative error, in the style of
+  HdrHistogram but without the dependency.
+
+  Values (nanoseconds) below 256 get a bucket each. Above that, every power
+  of two is split into 128 equal sub-buckets, so a bucket is never wider
+  than 1/128 of its values: percentiles are exact to within 0.8%, from
+  nanoseconds up to the largest long, in a fixed 64 KB of counters.
+
+  record() is one bucket computation and one atomic increment, cheap enough
+  to wrap every getWords call. Percentiles are read from a snapshot of the
+  counters, so dumping while solvers record is safe; counts recorded during
+  the dump may or may not be included.
+*/
+public class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB = 1 << SUB_BITS; // sub-buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record one value
+     *
+     * @param nanos the latency, negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(index(value));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) current = max.get();
+    }
+
+    // Bucket of a value: 0-255 are exact, then SUB buckets per power of two
+    private static int index(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value | 1);
+        int shift = Math.max(0, msb - SUB_BITS);
+        return shift * SUB + (int) (value >>> shift);
+    }
+
+    // Largest value that falls into a bucket
+    private static long highestValue(int index) {
+        if (index < 2 * SUB) return index;
+        int shift = index / SUB - 1;
+        long sub = index - shift * SUB;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private long[] snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+        return copy;
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += counts.get(i);
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Value at a percentile
+     *
+     * @param percentile 0 to 100, e.g. 99.9
+     * @return the highest value of the bucket holding that percentile, 0 if empty
+     */
+    public long valueAtPercentile(double percentile) {
+        return valueAtPercentile(snapshot(), percentile);
+    }
+
+    private long valueAtPercentile(long[] snapshot, double percentile) {
+        long total = 0;
+        for (long c : snapshot) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    // Start over, e.g. after a warmup
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        max.set(0);
+    }
+
+    /**
+     * Dump the count and the usual percentiles, in microseconds
+     *
+     * @param out where to print
+     */
+    public void print(PrintStream out) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long c : snapshot) total += c;
+        out.printf("%d samples, us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  p99.99 %.1f  max %.1f\n", total,
+                   valueAtPercentile(snapshot, 50) / 1e3, valueAtPercentile(snapshot, 90) / 1e3,
+                   valueAtPercentile(snapshot, 99) / 1e3, valueAtPercentile(snapshot, 99.9) / 1e3,
+                   valueAtPercentile(snapshot, 99.99) / 1e3, max.get() / 1e3);
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.*;
+
+/*
+  BogglePlayer variant that solves against a LazyTrie, for short-lived
+  processes: the constructor only maps the word file and finds its prefix
+  blocks, and the first board is answered after building just the prefixes
+  it reaches.
+
+  Same search as BogglePlayer (DFS from every cell in the same direction
+  order, required-letter pruning, tile edges, top 20 by length). The
+  first two letters of a path pick the prefix block to continue in: a
+  multi-letter tile spells both itself, otherwise they come from the start
+  cell and its neighbor (whose tile may spell more letters, walked inside
+  the block). From there the search is the usual DFS over Nodes.
+*/
+public class LazyBogglePlayer implements BoggleSolver {
+  private final LazyTrie trie;
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  // Initialize with a file of English words, for classic boards (Q is QU)
+  public LazyBogglePlayer(String wordFile) {
+    this(wordFile, TileSet.CLASSIC);
+  }
+
+  // Initialize for boards made of the given tiles
+  public LazyBogglePlayer(String wordFile, TileSet tiles) {
+    LazyTrie opened;
+    try {
+      opened = LazyTrie.open(wordFile, tiles);
+    } catch (IOException e) {
+      System.err.println("Error reading dictionary file: " + e.getMessage());
+      opened = LazyTrie.empty(tiles);
+    }
+    trie = opened;
+  }
+
+  public LazyTrie getDictionary() {
+    return trie;
+  }
+
+  public LatencyHistogram getLatencyHistogram() {
+    return latency;
+  }
+
+  // Based on the board, find valid words
+  public Word[] getWords(char[][] board) {
+    return getWords(board, 20);
+  }
+
+  // Find up to maxWords of the longest words on the board
+  public Word[] getWords(char[][] board, int maxWords) {
+    long start = System.nanoTime();
+    // no event before a recording exists: loading the event class would set up JFR
+    // on the first board, costing more than the board itself
+    SolverEvents.BoardSolve event = SolverEvents.enabled() ? new SolverEvents.BoardSolve() : null;
+    if (event != null) event.begin();
+    BogglePlayer.Search search = new BogglePlayer.Search(board, maxWords, trie.getTileSet());
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        String letters = search.cellLetters[i][j];
+        if (letters == null) continue;
+        if (letters.length() > 1) {
+          // the tile spells the prefix itself; no node for it means no word starts with it
+          Node node = walk(trie.block(letters.charAt(0), letters.charAt(1)), letters, 2);
+          if (node == null) continue;
+          search.enter(i, j);
+          dfs(search, i, j, node);
+          search.leave(i, j);
+        } else {
+          // the eager trie has no node for a letter no word starts with, and skips it
+          if (!trie.startsWith(letters.charAt(0))) continue;
+          search.enter(i, j);
+          startFrom(search, i, j, letters.charAt(0));
+          search.leave(i, j);
+        }
+        if (search.foundWords.size() == maxWords && search.foundWords.peek().getWord().length() > 4) break;
+      }
+    }
+
+    Word[] myWords = new Word[Math.min(maxWords, search.foundWords.size())];
+    for (int i = 0; i < myWords.length; i++) {
+      myWords[i] = search.foundWords.poll();
+    }
+
+    latency.record(System.nanoTime() - start);
+    if (event != null) event.end();
+    if (event != null && event.shouldCommit()) {
+      event.engine = "LazyBogglePlayer";
+      event.board = SolverEvents.boardId(board);
+      event.maxWords = maxWords;
+      event.nodesVisited = search.nodesVisited;
+      event.wordsFound = search.foundWordStrings.size();
+      event.commit();
+    }
+    return myWords;
+  }
+
+  // Second step from a one-letter start cell: the neighbor's first letter picks the block
+  private void startFrom(BogglePlayer.Search search, int row, int col, char first) {
+    for (int i = 0; i < 8; i++) {
+      int newRow = row + BogglePlayer.ROW_DIR[i];
+      int newCol = col + BogglePlayer.COL_DIR[i];
+      if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4 || search.visited[newRow][newCol]) {
+        continue;
+      }
+      String letters = search.cellLetters[newRow][newCol];
+      Node next = walk(trie.block(first, letters.charAt(0)), letters, 1);
+      if (next == null) {
+        continue;
+      }
+      search.enter(newRow, newCol);
+      dfs(search, newRow, newCol, next);
+      search.leave(newRow, newCol);
+    }
+  }
+
+  // Follow the rest of a tile's letters from node, letter by letter (a tile edge would skip them)
+  private static Node walk(Node node, String letters, int from) {
+    for (int k = from; k < letters.length() && node != null; k++) {
+      node = node.child(letters.charAt(k) - 'A');
+    }
+    return node;
+  }
+
+  // Same as BogglePlayer.dfs
+  private void dfs(BogglePlayer.Search search, int row, int col, Node node) {
+    if ((node.requiredMask & ~search.available) != 0) {
+      return;
+    }
+    if (node.isWord) {
+      search.addWord();
+    }
+    for (int i = 0; i < 8; i++) {
+      int newRow = row + BogglePlayer.ROW_DIR[i];
+      int newCol = col + BogglePlayer.COL_DIR[i];
+      if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4 || search.visited[newRow][newCol]) {
+        continue;
+      }
+      Node next = node.child(search.tileIds[newRow][newCol]);
+      if (next == null) {
+        continue;
+      }
+      search.enter(newRow, newCol);
+      dfs(search, newRow, newCol, next);
+      search.leave(newRow, newCol);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/*
+  Dictionary trie built one two-letter prefix at a time, as solvers need it.
+
+  The eager loaders build every word into the trie before the first solve,
+  while one 4x4 board only reaches the words of the few dozen two-letter
+  prefixes its adjacent cells spell. Here opening the word file maps it and
+  reads the first two bytes of each line, to find where each prefix block
+  (AA, AB, ... ZZ) starts and which blocks hold words. The sub-trie below
+  a prefix is built from its block the first time a search steps onto that
+  prefix, and is then shared by all later searches.
+
+  Blocks are published through an AtomicReferenceArray, so a solver on
+  another thread sees a block either not at all or completely built. Each
+  block is built under a lock of its own, so two solvers needing the same
+  new block build it once, solvers needing different ones don't wait for
+  each other, and solvers that find their blocks built never lock.
+
+  The word file must be sorted by its first two letters ignoring case, as
+  words.txt is (the order a case-insensitive sort gives). Opening checks
+  this on the same pass and fails with an IOException otherwise, rather
+  than answering differently from the eager trie. Lines are accepted on the
+  same terms as DictionaryLoader. Word ids are not assigned (they are
+  alphabetical over the whole file).
+
+  Usage: LazyTrie wordFile [boards]
+         times opening and the first board, then compares LazyBogglePlayer
+         with BogglePlayer on random boards
+*/
+public class LazyTrie {
+    public static final int BLOCKS = 26 * 26;
+
+    private final ByteBuffer bytes;
+    private final TileSet tiles;
+    // byte range of each block in the file: [from[k], to[k])
+    private final int[] from = new int[BLOCKS];
+    private final int[] to = new int[BLOCKS];
+    // blocks with at least one accepted word, and letters some word starts with
+    private final BitSet present = new BitSet(BLOCKS);
+    private int firstLetters;
+    // sub-trie below each prefix (the node for its second letter), null until built
+    private final AtomicReferenceArray<Node> blocks = new AtomicReferenceArray<>(BLOCKS);
+    private final Object[] buildLocks = new Object[BLOCKS];
+    private final AtomicInteger built = new AtomicInteger();
+
+    private LazyTrie(ByteBuffer bytes, TileSet tiles) {
+        this.bytes = bytes;
+        this.tiles = tiles;
+        for (int block = 0; block < BLOCKS; block++) buildLocks[block] = new Object();
+    }
+
+    /**
+     * Map a sorted word file and find its prefix blocks; no word is read yet
+     *
+     * @param wordFile file with one word per line, sorted ignoring case
+     * @param tiles    board tiles the trie is searched with
+     * @return the trie
+     * @throws IOException if the file can't be mapped
+     */
+    public static LazyTrie open(String wordFile, TileSet tiles) throws IOException {
+        LazyTrie trie;
+        try (FileChannel channel = FileChannel.open(Paths.get(wordFile), StandardOpenOption.READ)) {
+            trie = new LazyTrie(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), tiles);
+        }
+        trie.findBlocks(wordFile);
+        return trie;
+    }
+
+    // A trie without words, e.g. when the word file can't be read
+    static LazyTrie empty(TileSet tiles) {
+        return new LazyTrie(ByteBuffer.allocate(0), tiles);
+    }
+
+    public TileSet getTileSet() {
+        return tiles;
+    }
+
+    // Number of prefix blocks built so far
+    public int getBuiltBlocks() {
+        return built.get();
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    // One pass over the lines: where each block's accepted words start, and a
+    // check that they come in block order. Lines that aren't accepted (two
+    // letters or less, or not letters only) may sort anywhere, as build skips
+    // them. The bytes are copied out a chunk at a time, cheaper than a get()
+    // per byte while the code is still cold.
+    private void findBlocks(String wordFile) throws IOException {
+        int limit = bytes.limit();
+        byte[] chunk = new byte[1 << 16];
+        int chunkStart = 0, chunkEnd = 0;
+        int last = -1; // block of the previous accepted line
+        int start = 0, length = 0, key = 0;
+        boolean letters = true;
+        for (int pos = 0; pos <= limit; pos++) {
+            if (pos == chunkEnd && pos < limit) {
+                chunkStart = pos;
+                chunkEnd = Math.min(limit, pos + chunk.length);
+                bytes.get(pos, chunk, 0, chunkEnd - pos);
+            }
+            byte b = pos < limit ? chunk[pos - chunkStart] : (byte) '\n';
+            if (isTerminator(b)) {
+                if (letters && length > 2) {
+                    if (key < last) {
+                        throw new IOException(wordFile + " is not sorted by the first two letters: "
+                                              + (char) ('A' + key / 26) + (char) ('A' + key % 26) + " at byte "
+                                              + start + " after " + (char) ('A' + last / 26)
+                                              + (char) ('A' + last % 26));
+                    }
+                    for (int block = last + 1; block <= key; block++) from[block] = start;
+                    present.set(key);
+                    firstLetters |= 1 << (key / 26);
+                    last = key;
+                }
+                start = pos + 1;
+                length = 0;
+                key = 0;
+                letters = true;
+                continue;
+            }
+            int c = (b & 0xDF) - 'A';
+            if (c < 0 || c >= 26) letters = false;
+            else if (length < 2) key = key * 26 + c;
+            length++;
+        }
+        // a block ends where the next begins; trailing blocks are empty
+        for (int block = last + 1; block < BLOCKS; block++) from[block] = limit;
+        for (int block = 0; block + 1 < BLOCKS; block++) to[block] = from[block + 1];
+        to[BLOCKS - 1] = limit;
+    }
+
+    /**
+     * The sub-trie below a two-letter prefix, built on first use
+     *
+     * @param first  first letter, A-Z
+     * @param second second letter, A-Z
+     * @return the node for the prefix, null if no word starts with it
+     */
+    public Node block(char first, char second) {
+        int block = (first - 'A') * 26 + (second - 'A');
+        if (!present.get(block)) return null;
+        Node node = blocks.get(block);
+        if (node == null) {
+            synchronized (buildLocks[block]) {
+                node = blocks.get(block);
+                if (node == null) {
+                    node = build(block);
+                    blocks.set(block, node);
+                    built.incrementAndGet();
+                }
+            }
+        }
+        return node;
+    }
+
+    // Bytes of one block, copied out in one go
+    private byte[] blockBytes(int block) {
+        byte[] data = new byte[to[block] - from[block]];
+        bytes.get(from[block], data);
+        return data;
+    }
+
+    // Insert the accepted lines of one block below a fresh node, skipping the prefix
+    private Node build(int block) {
+        Node blockRoot = new Node();
+        byte[] data = blockBytes(block);
+        int pos = 0;
+        while (pos < data.length) {
+            int start = pos;
+            boolean letters = true;
+            while (pos < data.length && !isTerminator(data[pos])) {
+                int c = data[pos] & 0xDF;
+                if (c < 'A' || c > 'Z') letters = false;
+                pos++;
+            }
+            if (letters && pos - start > 2) {
+                Node current = blockRoot;
+                for (int i = start + 2; i < pos; i++) {
+                    int idx = (data[i] & 0xDF) - 'A';
+                    Node next = current.child(idx);
+                    if (next == null) {
+                        next = new Node();
+                        current.put(idx, next);
+                    }
+                    current = next;
+                }
+                current.isWord = true;
+            }
+            while (pos < data.length && isTerminator(data[pos])) pos++;
+        }
+        updateDerived(blockRoot);
+        return blockRoot;
+    }
+
+    // Required letter masks and tile edges, children first (as CompressedTrie does for a whole trie)
+    private void updateDerived(Node node) {
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) updateDerived(node.child(c));
+        node.updateRequiredMask();
+        node.updateTileEdges(tiles);
+    }
+
+    /**
+     * Whether any word starts with a letter, as the eager trie's root has a
+     * child for it
+     *
+     * @param letter A-Z
+     * @return true if some word starts with the letter
+     */
+    public boolean startsWith(char letter) {
+        return (firstLetters & (1 << (letter - 'A'))) != 0;
+    }
+
+    // Check whether a word (uppercase A-Z) is in the dictionary
+    public boolean contains(String word) {
+        if (word.length() < 3) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) < 'A' || word.charAt(i) > 'Z') return false;
+        }
+        Node node = block(word.charAt(0), word.charAt(1));
+        for (int i = 2; i < word.length() && node != null; i++) node = node.child(word.charAt(i) - 'A');
+        return node != null && node.isWord;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: LazyTrie wordFile [boards]");
+            System.exit(-1);
+        }
+        int count = args.length == 2 ? Integer.parseInt(args[1]) : 2000;
+
+        long start = System.nanoTime();
+        LazyBogglePlayer lazy = new LazyBogglePlayer(args[0]);
+        long opened = System.nanoTime();
+        lazy.getWords(BoggleBoards.randomBoard(0));
+        long firstBoard = System.nanoTime();
+        System.out.printf("lazy: open %.2f ms, first board %.2f ms (%d of %d blocks built)\n", (opened - start) / 1e6,
+                          (firstBoard - opened) / 1e6, lazy.getDictionary().getBuiltBlocks(), BLOCKS);
+
+        start = System.nanoTime();
+        BogglePlayer eager = new BogglePlayer(args[0]);
+        opened = System.nanoTime();
+        eager.getWords(BoggleBoards.randomBoard(0));
+        firstBoard = System.nanoTime();
+        System.out.printf("eager: load %.2f ms, first board %.2f ms\n", (opened - start) / 1e6,
+                          (firstBoard - opened) / 1e6);
+
+        int differ = 0;
+        for (int b = 0; b < count; b++) {
+            char[][] board = BoggleBoards.randomBoard(b);
+            if (!Arrays.equals(Arrays.stream(lazy.getWords(board)).map(Word::getWord).toArray(),
+                               Arrays.stream(eager.getWords(board)).map(Word::getWord).toArray())) {
+                differ++;
+            }
+        }
+        System.out.printf("%d boards, %d differ from the eager trie; %d of %d blocks built\n", count, differ,
+                          lazy.getDictionary().getBuiltBlocks(), BLOCKS);
+    }
+}
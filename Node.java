@@ -1,11 +1,196 @@
+import java.util.Arrays;
+
 public class Node {
-    public Node[] children;
-    public String suffix; // Store extra compressed characters
+    // Children are stored in an adaptive layout sized to the fan-out:
+    //  - leaf:   no keys, no children (shared empty arrays)
+    //  - sparse: up to 4, then up to 16 children, letters kept sorted in keys
+    //  - dense:  keys == null, children indexed directly by key (32-way)
+    // Keys 0-25 are letters. Keys 26-31 are tile edges (see TileSet): for a
+    // multi-letter tile such as QU they point at the node two letters down,
+    // so the solver follows any board cell with a single child() call.
+    private static final byte[] NO_KEYS = new byte[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int DENSE = TileSet.MAX_TILES;
+
+    private byte[] keys;
+    private Node[] children;
+    private byte size;
+    private byte tileEdges; // how many of the size keys are tile edges
     public boolean isWord;
+    // Letters (bit 0 = 'A') that every word below this node still needs;
+    // 0 when this node ends a word. Kept up to date by CompressedTrie.
+    public int requiredMask;
 
     Node() {
-        children = new Node[26]; // ASCII, A is 65 and Z is 90
-        suffix = "";
+        keys = NO_KEYS;
+        children = NO_CHILDREN;
         isWord = false;
     }
+
+    // Return the child for letter index or tile id idx (0 = 'A'), or null if there is none
+    public Node child(int idx) {
+        byte[] k = keys;
+        if (k == null) {
+            return children[idx];
+        }
+        // keys are sorted and small, so a linear scan beats a binary search here
+        for (int i = 0; i < size; i++) {
+            if (k[i] == idx) {
+                return children[i];
+            }
+        }
+        return null;
+    }
+
+    // Number of letter children (tile edges are not counted)
+    public int childCount() {
+        return size - tileEdges;
+    }
+
+    // Smallest letter index >= from that has a child, or -1 if there is none;
+    // iterate with: for (int c = n.nextKey(0); c >= 0; c = n.nextKey(c + 1))
+    // Tile edges are skipped, so this visits every node of a trie exactly once.
+    public int nextKey(int from) {
+        if (keys == null) {
+            for (int idx = from; idx < TileSet.LETTERS; idx++) {
+                if (children[idx] != null) return idx;
+            }
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] >= from) return keys[i] < TileSet.LETTERS ? keys[i] : -1;
+        }
+        return -1;
+    }
+
+    // Layout details for memory accounting
+    boolean isDense() {
+        return keys == null;
+    }
+
+    int keyCapacity() {
+        return keys == null ? 0 : keys.length;
+    }
+
+    int childCapacity() {
+        return children.length;
+    }
+
+    // Number of children including tile edges
+    int edgeCount() {
+        return size;
+    }
+
+    // Set the child for letter index or tile id idx, growing the layout when it is full
+    void put(int idx, Node child) {
+        if (keys == null) {
+            if (children[idx] == null) added(idx);
+            children[idx] = child;
+            return;
+        }
+        int pos = 0;
+        while (pos < size && keys[pos] < idx) pos++;
+        if (pos < size && keys[pos] == idx) {
+            children[pos] = child;
+            return;
+        }
+        if (size == keys.length) {
+            if (size == 16) {
+                toDense();
+                children[idx] = child;
+                added(idx);
+                return;
+            }
+            int capacity = size == 0 ? 4 : 16;
+            keys = Arrays.copyOf(keys, capacity);
+            children = Arrays.copyOf(children, capacity);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+        System.arraycopy(children, pos, children, pos + 1, size - pos);
+        keys[pos] = (byte) idx;
+        children[pos] = child;
+        added(idx);
+    }
+
+    // Remove the child for letter index or tile id idx, if present
+    void remove(int idx) {
+        if (keys == null) {
+            if (children[idx] != null) removed(idx);
+            children[idx] = null;
+            return;
+        }
+        for (int pos = 0; pos < size; pos++) {
+            if (keys[pos] == idx) {
+                System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+                System.arraycopy(children, pos + 1, children, pos, size - pos - 1);
+                removed(idx);
+                children[size] = null;
+                return;
+            }
+        }
+    }
+
+    private void added(int idx) {
+        size++;
+        if (idx >= TileSet.LETTERS) tileEdges++;
+    }
+
+    private void removed(int idx) {
+        size--;
+        if (idx >= TileSet.LETTERS) tileEdges--;
+    }
+
+    // Point each multi-letter tile's edge at the node its letters lead to, or
+    // drop it; the letter children below must be final. Tiles whose letters
+    // don't continue any word get no edge.
+    void updateTileEdges(TileSet tiles) {
+        for (int id = TileSet.LETTERS; id < TileSet.MAX_TILES; id++) {
+            String letters = tiles.letters(id);
+            Node target = letters == null ? null : this;
+            for (int i = 0; target != null && i < letters.length(); i++) {
+                target = target.child(letters.charAt(i) - 'A');
+            }
+            if (target != null) {
+                put(id, target);
+            } else if (tileEdges > 0) {
+                remove(id);
+            }
+        }
+    }
+
+    // Shallow copy for copy-on-write updates: the child arrays are cloned,
+    // the children themselves are shared with the original node
+    Node copy() {
+        Node n = new Node();
+        n.keys = (keys == null || keys.length == 0) ? keys : keys.clone();
+        n.children = children.length == 0 ? children : children.clone();
+        n.size = size;
+        n.tileEdges = tileEdges;
+        n.isWord = isWord;
+        n.requiredMask = requiredMask;
+        return n;
+    }
+
+    // Recompute requiredMask from the children's masks
+    void updateRequiredMask() {
+        if (isWord || childCount() == 0) {
+            requiredMask = 0;
+            return;
+        }
+        int mask = ~0;
+        for (int c = nextKey(0); c >= 0; c = nextKey(c + 1)) {
+            mask &= (1 << c) | child(c).requiredMask;
+        }
+        requiredMask = mask;
+    }
+
+    // Switch a full 16-way node to the direct-indexed layout
+    private void toDense() {
+        Node[] dense = new Node[DENSE];
+        for (int i = 0; i < size; i++) {
+            dense[keys[i]] = children[i];
+        }
+        keys = null;
+        children = dense;
+    }
 }
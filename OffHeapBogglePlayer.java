@@ -0,0 +1,115 @@
+import java.io.*;
+
+/*
+  BogglePlayer variant that solves against an OffHeapTrie.
+
+  Same search as BogglePlayer (DFS from every cell in the same direction
+  order, required-letter pruning, tile edges, top 20 by length), but the dictionary is
+  walked through byte offsets into off-heap memory, so the dictionary adds
+  next to nothing to the heap. close() releases the dictionary memory.
+*/
+public class OffHeapBogglePlayer implements BoggleSolver, AutoCloseable {
+  private final OffHeapTrie trie;
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  // Initialize with a file of English words, for classic boards (Q is QU)
+  public OffHeapBogglePlayer(String wordFile) {
+    this(wordFile, TileSet.CLASSIC);
+  }
+
+  // Initialize for boards made of the given tiles
+  public OffHeapBogglePlayer(String wordFile, TileSet tiles) {
+    OffHeapTrie loaded;
+    try {
+      loaded = OffHeapTrie.load(wordFile, tiles);
+    } catch (IOException e) {
+      System.err.println("Error reading dictionary file: " + e.getMessage());
+      loaded = new OffHeapTrie(new Node(), tiles);
+    }
+    trie = loaded;
+  }
+
+  public OffHeapTrie getDictionary() {
+    return trie;
+  }
+
+  public LatencyHistogram getLatencyHistogram() {
+    return latency;
+  }
+
+  // Based on the board, find valid words
+  public Word[] getWords(char[][] board) {
+    return getWords(board, 20);
+  }
+
+  // Find up to maxWords of the longest words on the board
+  public Word[] getWords(char[][] board, int maxWords) {
+    long start = System.nanoTime();
+    // no event until a recording exists (see SolverEvents.enabled)
+    SolverEvents.BoardSolve event = SolverEvents.enabled() ? new SolverEvents.BoardSolve() : null;
+    if (event != null) event.begin();
+    trie.acquire();
+    try {
+      BogglePlayer.Search search = new BogglePlayer.Search(board, maxWords, trie.getTileSet());
+      for (int i = 0; i < 4; i++) {
+        for (int j = 0; j < 4; j++) {
+          if (search.tileIds[i][j] < 0) continue;
+          int node = trie.child(OffHeapTrie.ROOT, search.tileIds[i][j]);
+          if (node == OffHeapTrie.NONE) continue;
+          search.enter(i, j);
+          dfs(search, i, j, node);
+          search.leave(i, j);
+          if (search.foundWords.size() == maxWords && search.foundWords.peek().getWord().length() > 4) break;
+        }
+      }
+
+      Word[] myWords = new Word[Math.min(maxWords, search.foundWords.size())];
+      for (int i = 0; i < myWords.length; i++) {
+        myWords[i] = search.foundWords.poll();
+      }
+
+      latency.record(System.nanoTime() - start);
+      if (event != null) event.end();
+      if (event != null && event.shouldCommit()) {
+        event.engine = "OffHeapBogglePlayer";
+        event.board = SolverEvents.boardId(board);
+        event.maxWords = maxWords;
+        event.nodesVisited = search.nodesVisited;
+        event.wordsFound = search.foundWordStrings.size();
+        event.commit();
+      }
+      return myWords;
+    } finally {
+      trie.release();
+    }
+  }
+
+  // Same as BogglePlayer.dfs, with node as an offset into the trie
+  private void dfs(BogglePlayer.Search search, int row, int col, int node) {
+    if ((trie.requiredMask(node) & ~search.available) != 0) {
+      return;
+    }
+    if (trie.isWord(node)) {
+      search.addWord();
+    }
+    for (int i = 0; i < 8; i++) {
+      int newRow = row + BogglePlayer.ROW_DIR[i];
+      int newCol = col + BogglePlayer.COL_DIR[i];
+      if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4 || search.visited[newRow][newCol]) {
+        continue;
+      }
+      int next = trie.child(node, search.tileIds[newRow][newCol]);
+      if (next == OffHeapTrie.NONE) {
+        continue;
+      }
+      search.enter(newRow, newCol);
+      dfs(search, newRow, newCol, next);
+      search.leave(newRow, newCol);
+    }
+  }
+
+  @Override
+  public void close() {
+    trie.close();
+  }
+}
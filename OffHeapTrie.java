@@ -0,0 +1,269 @@
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/*
+  Dictionary trie stored outside the Java heap.
+
+  The nodes live in one direct ByteBuffer with a fixed layout, addressed by
+  byte offset (native byte order):
+
+    int  children mask: bit c set if there is a child for letter or tile id c
+         (bits 26-31 are the tile edges of Node, see TileSet)
+    int  required letters mask (see Node.requiredMask),
+         bit 31 set if the node ends a word
+    int  offset of each child, in key order
+
+  The child for key c is at slot bitCount(mask & ((1 << c) - 1)), so a
+  lookup is a mask test, a popcount and one read, for a letter or a whole
+  multi-letter tile alike. Offset 0 is the root; NONE means "no node".
+
+  The heap only holds this object and the buffer header, so GC marking work
+  no longer depends on the dictionary size. load() never has the whole
+  dictionary on the heap either: it builds one first-letter sub-trie at a
+  time and writes it off-heap before building the next.
+
+  The memory is released by close(), not by the GC: solvers bracket their
+  use with acquire()/release(), and the buffer is freed when the last user
+  releases it after close(). The node accessors read the buffer directly,
+  so they are only for solvers between acquire() and release(), and are
+  package-private.
+*/
+public class OffHeapTrie implements AutoCloseable {
+    public static final int NONE = -1;
+    public static final int ROOT = 0;
+    private static final int WORD_BIT = 1 << 31;
+    private static final int LETTER_BITS = (1 << TileSet.LETTERS) - 1;
+    private static final int HEADER = 8;
+
+    private static final int CLOSED = 1 << 30; // flag in users
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicBoolean freed = new AtomicBoolean();
+    private final ByteBuffer nodes;
+    private final TileSet tiles;
+
+    /**
+     * Copy a heap trie off-heap; the heap trie can be dropped afterwards
+     *
+     * @param root  root of the heap trie
+     * @param tiles board tiles the heap trie has tile edges for
+     */
+    public OffHeapTrie(Node root, TileSet tiles) {
+        this(allocate(size(root, 0)), tiles);
+        write(nodes, 0, root, 0, tiles);
+    }
+
+    private OffHeapTrie(ByteBuffer nodes, TileSet tiles) {
+        this.nodes = nodes;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Load a word file straight into an off-heap trie. The heap holds one
+     * first-letter sub-trie at a time: each is built, written to a buffer of
+     * its own and dropped, and the buffers are then joined below the root.
+     *
+     * @param wordFile file with one word per line
+     * @param tiles    board tiles the trie is searched with
+     * @return the trie
+     * @throws IOException if the file can't be read
+     */
+    public static OffHeapTrie load(String wordFile, TileSet tiles) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(Paths.get(wordFile), StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        DictionaryLoader.LineList[] byLetter = DictionaryLoader.partition(bytes);
+
+        // room for a slot per letter and tile edge, so the sub-tries' offsets are known before the root is written
+        int rootBytes = HEADER + 4 * TileSet.MAX_TILES;
+        List<ByteBuffer> segments = new ArrayList<>();
+        int[] firstLetter = new int[DictionaryLoader.LETTERS];
+        long end = rootBytes;
+        for (int letter = 0; letter < firstLetter.length; letter++) {
+            firstLetter[letter] = NONE;
+            if (byLetter[letter].size == 0) continue;
+            Node subRoot = DictionaryLoader.buildSubTrie(bytes, byLetter[letter]);
+            byLetter[letter] = null;
+            CompressedTrie.updateDerived(subRoot, tiles);
+            ByteBuffer segment = allocate(size(subRoot, end));
+            write(segment, (int) end, subRoot, (int) end, tiles);
+            firstLetter[letter] = (int) end;
+            end += segment.capacity();
+            segments.add(segment);
+        }
+
+        ByteBuffer nodes = allocate(end);
+        nodes.position(rootBytes);
+        for (ByteBuffer segment : segments) {
+            nodes.put(segment.clear());
+            freeDirect(segment);
+        }
+        nodes.clear();
+        writeRoot(nodes, firstLetter, tiles);
+        return new OffHeapTrie(nodes, tiles);
+    }
+
+    // Bytes of the subtree under node, checked to fit below 2 GB when written at offset
+    private static long size(Node node, long offset) {
+        long[] counts = new long[2]; // nodes, edges
+        count(node, counts);
+        long bytes = counts[0] * HEADER + counts[1] * 4;
+        if (offset + bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("dictionary too large: " + (offset + bytes) + " bytes");
+        }
+        return bytes;
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static void count(Node node, long[] counts) {
+        counts[0]++;
+        counts[1] += node.edgeCount();
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+            count(node.child(c), counts);
+        }
+    }
+
+    // Preorder: header and child slots first, then each child, filling its slot; returns the next free offset.
+    // Tile edge slots come after the letters and are filled last, by walking the letters just written.
+    // Offsets are those of the whole trie; out holds the bytes from offset base on.
+    private static int write(ByteBuffer out, int base, Node node, int offset, TileSet tiles) {
+        int mask = 0;
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) mask |= 1 << c;
+        for (int id = TileSet.LETTERS; id < TileSet.MAX_TILES; id++) {
+            if (node.child(id) != null) mask |= 1 << id;
+        }
+        out.putInt(offset - base, mask);
+        out.putInt(offset - base + 4, node.isWord ? node.requiredMask | WORD_BIT : node.requiredMask);
+        int slot = offset + HEADER;
+        int next = slot + 4 * node.edgeCount();
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+            out.putInt(slot - base, next);
+            slot += 4;
+            next = write(out, base, node.child(c), next, tiles);
+        }
+        for (int id = TileSet.LETTERS; id < TileSet.MAX_TILES; id++) {
+            if ((mask & (1 << id)) == 0) continue;
+            int target = offset;
+            String letters = tiles.letters(id);
+            for (int i = 0; i < letters.length(); i++) target = child(out, base, target, letters.charAt(i) - 'A');
+            out.putInt(slot - base, target);
+            slot += 4;
+        }
+        return next;
+    }
+
+    // The root of a loaded trie, over the sub-tries already in place: letter slots,
+    // then the tile edges found by walking them, as Node.updateTileEdges does
+    private static void writeRoot(ByteBuffer nodes, int[] firstLetter, TileSet tiles) {
+        int mask = 0, required = ~0, slot = HEADER;
+        for (int letter = 0; letter < firstLetter.length; letter++) {
+            if (firstLetter[letter] == NONE) continue;
+            mask |= 1 << letter;
+            required &= (1 << letter) | (nodes.getInt(firstLetter[letter] + 4) & ~WORD_BIT);
+            nodes.putInt(slot, firstLetter[letter]);
+            slot += 4;
+        }
+        nodes.putInt(ROOT, mask);
+        int edges = mask;
+        for (int id = TileSet.LETTERS; id < TileSet.MAX_TILES; id++) {
+            String letters = tiles.letters(id);
+            if (letters == null) continue;
+            int target = ROOT;
+            for (int i = 0; i < letters.length() && target != NONE; i++) {
+                target = child(nodes, 0, target, letters.charAt(i) - 'A');
+            }
+            if (target == NONE) continue;
+            edges |= 1 << id;
+            nodes.putInt(slot, target);
+            slot += 4;
+        }
+        nodes.putInt(ROOT, edges);
+        nodes.putInt(ROOT + 4, mask == 0 ? 0 : required);
+    }
+
+    private static int child(ByteBuffer nodes, int base, int node, int idx) {
+        int mask = nodes.getInt(node - base);
+        int bit = 1 << idx;
+        if ((mask & bit) == 0) return NONE;
+        return nodes.getInt(node - base + HEADER + 4 * Integer.bitCount(mask & (bit - 1)));
+    }
+
+    // Offset of the child for letter index or tile id idx (0 = 'A'), or NONE
+    int child(int node, int idx) {
+        int mask = nodes.getInt(node);
+        int bit = 1 << idx;
+        if ((mask & bit) == 0) return NONE;
+        return nodes.getInt(node + HEADER + 4 * Integer.bitCount(mask & (bit - 1)));
+    }
+
+    boolean isWord(int node) {
+        return (nodes.getInt(node + 4) & WORD_BIT) != 0;
+    }
+
+    int requiredMask(int node) {
+        return nodes.getInt(node + 4) & ~WORD_BIT;
+    }
+
+    int childCount(int node) {
+        return Integer.bitCount(nodes.getInt(node) & LETTER_BITS);
+    }
+
+    public TileSet getTileSet() {
+        return tiles;
+    }
+
+    // Off-heap bytes held by the trie
+    public long sizeBytes() {
+        return nodes.capacity();
+    }
+
+    /**
+     * Start using the trie; pair with release()
+     *
+     * @throws IllegalStateException if the trie is closed
+     */
+    public void acquire() {
+        while (true) {
+            int current = users.get();
+            if ((current & CLOSED) != 0) throw new IllegalStateException("dictionary is closed");
+            if (users.compareAndSet(current, current + 1)) return;
+        }
+    }
+
+    public void release() {
+        if (users.decrementAndGet() == CLOSED) free();
+    }
+
+    // Release the memory now, or when the last user releases it
+    @Override
+    public void close() {
+        int before = users.getAndUpdate(u -> u | CLOSED);
+        if (before == 0) free();
+    }
+
+    private void free() {
+        if (freed.compareAndSet(false, true)) freeDirect(nodes);
+    }
+
+    private static void freeDirect(ByteBuffer buffer) {
+        // Java 17 has no public way to free a direct buffer; the JDK's own
+        // cleaner hook is reached through sun.misc.Unsafe (jdk.unsupported).
+        // If that fails, the GC still frees the buffer once it is unreachable.
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to the GC
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+  Dense direct-index table for the top levels of a trie.
+
+  Entries are indexed by board tile ids (see TileSet) and point at the Trie
+  node reached after spelling those tiles, or are null when no word starts
+  that way. Multi-letter tiles are followed through the nodes' tile edges,
+  same as in the solver, so the table can be used with board tiles directly.
+
+  The table is immutable and belongs to the root it was built from.
+*/
+public class PrefixTable {
+    private static final int TILES = TileSet.MAX_TILES;
+
+    public final Node root;
+    private final Node[] singles = new Node[TILES];
+    private final Node[] pairs = new Node[TILES * TILES];
+    private final Node[] triples = new Node[TILES * TILES * TILES];
+
+    public PrefixTable(Node root, TileSet tiles) {
+        this.root = root;
+        for (int a = 0; a < TILES; a++) {
+            if (tiles.letters(a) == null) continue;
+            Node first = root.child(a);
+            singles[a] = first;
+            if (first == null) continue;
+            for (int b = 0; b < TILES; b++) {
+                if (tiles.letters(b) == null) continue;
+                Node second = first.child(b);
+                pairs[a * TILES + b] = second;
+                if (second == null) continue;
+                for (int c = 0; c < TILES; c++) {
+                    if (tiles.letters(c) != null) triples[(a * TILES + b) * TILES + c] = second.child(c);
+                }
+            }
+        }
+    }
+
+    public Node single(int a) {
+        return singles[a];
+    }
+
+    public Node pair(int a, int b) {
+        return pairs[a * TILES + b];
+    }
+
+    public Node triple(int a, int b, int c) {
+        return triples[(a * TILES + b) * TILES + c];
+    }
+}
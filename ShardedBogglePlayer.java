@@ -0,0 +1,150 @@
+import java.io.*;
+import java.util.*;
+
+/*
+  BogglePlayer variant that solves against a ShardedDictionary.
+
+  Same search as BogglePlayer (DFS from every cell in the same direction
+  order, required-letter pruning, tile edges, top 20 by length), against
+  a snapshot that holds the shards of every two-letter prefix the board
+  can start a word with: a multi-letter tile on its own, or a tile and a
+  neighbor. Only those shards are read in, and only those are pinned for
+  the solve, so memory follows the boards being played instead of the
+  size of the word list.
+
+  The (String wordFile) constructors open the shards in
+  ShardedDictionary.defaultDir (the boggle.shardDir system property, or a
+  temporary directory), built there by ShardedDictionary.openOrBuild unless
+  they are already built from the word file.
+*/
+public class ShardedBogglePlayer implements BoggleSolver {
+  // Resident shard memory of the (String wordFile) constructors
+  public static final long DEFAULT_CAP_BYTES = 64L << 20;
+
+  private final ShardedDictionary dictionary;
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  // Initialize with a file of English words, for classic boards (Q is QU)
+  public ShardedBogglePlayer(String wordFile) {
+    this(wordFile, TileSet.CLASSIC);
+  }
+
+  // Initialize for boards made of the given tiles
+  public ShardedBogglePlayer(String wordFile, TileSet tiles) {
+    ShardedDictionary loaded;
+    try {
+      loaded = ShardedDictionary.openOrBuild(wordFile, ShardedDictionary.defaultDir(wordFile), tiles, DEFAULT_CAP_BYTES);
+    } catch (IOException e) {
+      System.err.println("Error reading dictionary file: " + e.getMessage());
+      loaded = ShardedDictionary.empty(tiles);
+    }
+    dictionary = loaded;
+  }
+
+  // Solve against shards opened elsewhere (another directory or cap)
+  public ShardedBogglePlayer(ShardedDictionary dictionary) {
+    this.dictionary = dictionary;
+  }
+
+  public ShardedDictionary getDictionary() {
+    return dictionary;
+  }
+
+  public LatencyHistogram getLatencyHistogram() {
+    return latency;
+  }
+
+  // Based on the board, find valid words
+  public Word[] getWords(char[][] board) {
+    return getWords(board, 20);
+  }
+
+  // Find up to maxWords of the longest words on the board
+  public Word[] getWords(char[][] board, int maxWords) {
+    long start = System.nanoTime();
+    // no event until a recording exists (see SolverEvents.enabled)
+    SolverEvents.BoardSolve event = SolverEvents.enabled() ? new SolverEvents.BoardSolve() : null;
+    if (event != null) event.begin();
+    BogglePlayer.Search search = new BogglePlayer.Search(board, maxWords, dictionary.getTileSet());
+    Node root = dictionary.acquire(shardsOf(search));
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        if (search.tileIds[i][j] < 0) continue;
+        Node node = root.child(search.tileIds[i][j]);
+        if (node != null) {
+          search.enter(i, j);
+          dfs(search, i, j, node);
+          search.leave(i, j);
+        } else if (search.cellLetters[i][j].length() > 1 || !dictionary.startsWith(search.cellLetters[i][j].charAt(0))) {
+          // the full trie has no node for this cell either, so it is skipped there as
+          // well; a letter whose shards just aren't needed here still gets the check below
+          continue;
+        }
+        if (search.foundWords.size() == maxWords && search.foundWords.peek().getWord().length() > 4) break;
+      }
+    }
+
+    Word[] myWords = new Word[Math.min(maxWords, search.foundWords.size())];
+    for (int i = 0; i < myWords.length; i++) {
+      myWords[i] = search.foundWords.poll();
+    }
+
+    latency.record(System.nanoTime() - start);
+    if (event != null) event.end();
+    if (event != null && event.shouldCommit()) {
+      event.engine = "ShardedBogglePlayer";
+      event.board = SolverEvents.boardId(board);
+      event.maxWords = maxWords;
+      event.nodesVisited = search.nodesVisited;
+      event.wordsFound = search.foundWordStrings.size();
+      event.commit();
+    }
+    return myWords;
+  }
+
+  // Shards of the first two letters of every path on the board
+  private static BitSet shardsOf(BogglePlayer.Search search) {
+    BitSet shards = new BitSet(ShardedDictionary.SHARDS);
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        String letters = search.cellLetters[i][j];
+        if (letters == null) continue;
+        if (letters.length() > 1) {
+          shards.set(ShardedDictionary.shardOf(letters.charAt(0), letters.charAt(1)));
+          continue;
+        }
+        for (int d = 0; d < 8; d++) {
+          int row = i + BogglePlayer.ROW_DIR[d];
+          int col = j + BogglePlayer.COL_DIR[d];
+          if (row < 0 || row >= 4 || col < 0 || col >= 4 || search.cellLetters[row][col] == null) continue;
+          shards.set(ShardedDictionary.shardOf(letters.charAt(0), search.cellLetters[row][col].charAt(0)));
+        }
+      }
+    }
+    return shards;
+  }
+
+  // Same as BogglePlayer.dfs
+  private void dfs(BogglePlayer.Search search, int row, int col, Node node) {
+    if ((node.requiredMask & ~search.available) != 0) {
+      return;
+    }
+    if (node.isWord) {
+      search.addWord();
+    }
+    for (int i = 0; i < 8; i++) {
+      int newRow = row + BogglePlayer.ROW_DIR[i];
+      int newCol = col + BogglePlayer.COL_DIR[i];
+      if (newRow < 0 || newRow >= 4 || newCol < 0 || newCol >= 4 || search.visited[newRow][newCol]) {
+        continue;
+      }
+      Node next = node.child(search.tileIds[newRow][newCol]);
+      if (next == null) {
+        continue;
+      }
+      search.enter(newRow, newCol);
+      dfs(search, newRow, newCol, next);
+      search.leave(newRow, newCol);
+    }
+  }
+}
@@ -0,0 +1,528 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/*
+  Dictionary split into shards on disk, loaded on demand under a memory cap.
+
+  For word lists too big to keep as one trie (many languages merged, tens
+  of millions of words), the words are split by their first two letters
+  into 676 shards. Each shard is the sub-trie below its two-letter prefix,
+  serialized to its own file:
+
+  shards.idx  int magic, int version, long size and long last-modified
+              time of the word file, then the word count of each shard
+              (AA, AB, ... ZZ)
+  XY.shard    the sub-trie below prefix XY, in preorder: per node a flags
+              byte (1 = word) and a child count byte, then per child its
+              letter byte and the child itself
+
+  Every word is at least 3 letters, so every word lives in exactly one
+  shard, and the two levels above the shards hold no words.
+
+  A solver asks for the shards its board can reach (acquire); missing ones
+  are read in, and then the least recently used shards the caller didn't
+  ask for are dropped until the resident shards fit the cap again. The
+  shards the caller asked for are always kept, so one board may push the
+  resident size over the cap until the next acquire.
+
+  The resident shards are published like CompressedTrie publishes updates:
+  a fresh root and first-letter nodes over the shared, never modified
+  shard sub-tries, swapped in through a volatile field. A solver keeps the
+  root it was handed, so an eviction never pulls a shard out from under a
+  running search; the shard's memory is reclaimed once the last search
+  using it is done. Word ids are the fully loaded trie's (alphabetical),
+  so answers match it exactly.
+
+  Lines are accepted on the same terms as DictionaryLoader: longer than 2
+  letters and nothing but A-Z/a-z; anything else (accented letters of
+  other languages included) is skipped, as the trie only has A-Z.
+
+  Usage: ShardedDictionary wordFile shardDir [capMB [boards]]
+         builds the shards if needed, then solves random boards with a
+         ShardedBogglePlayer and compares them with BogglePlayer
+*/
+public class ShardedDictionary {
+    public static final int SHARDS = 26 * 26;
+    private static final int MAGIC = 0x42475344; // "BGSD"
+    private static final int VERSION = 1;
+    private static final String INDEX = "shards.idx";
+    // partition buffers written out to the temporary files past this size
+    private static final int FLUSH_BYTES = 16 << 20;
+
+    private final Path dir;
+    private final TileSet tiles;
+    private final long capBytes;
+    private final int[] words = new int[SHARDS];
+    private final BitSet present = new BitSet(SHARDS); // shards with any words
+
+    // Resident shards; guarded by this, published through current
+    private final Node[] shards = new Node[SHARDS];
+    private final long[] shardBytes = new long[SHARDS];
+    private long residentBytes;
+    private final AtomicLongArray lastUse = new AtomicLongArray(SHARDS);
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+
+    // A published root and the shards under it; never modified once published
+    private static final class Snapshot {
+        final Node root;
+        final BitSet resident;
+
+        Snapshot(Node root, BitSet resident) {
+            this.root = root;
+            this.resident = resident;
+        }
+    }
+
+    private volatile Snapshot current;
+
+    private ShardedDictionary(Path dir, TileSet tiles, long capBytes) {
+        this.dir = dir;
+        this.tiles = tiles;
+        this.capBytes = capBytes;
+        current = new Snapshot(new Node(), new BitSet(SHARDS));
+    }
+
+    /**
+     * A dictionary without words, e.g. when the word file can't be read
+     *
+     * @param tiles board tiles
+     * @return the empty dictionary
+     */
+    public static ShardedDictionary empty(TileSet tiles) {
+        return new ShardedDictionary(null, tiles, 0);
+    }
+
+    /**
+     * Open built shards
+     *
+     * @param dir      directory written by build
+     * @param tiles    board tiles the shards are searched with
+     * @param capBytes retained size the resident shards are kept under
+     * @return the dictionary, with no shard loaded yet
+     * @throws IOException if the index can't be read
+     */
+    public static ShardedDictionary open(Path dir, TileSet tiles, long capBytes) throws IOException {
+        ShardedDictionary dictionary = new ShardedDictionary(dir, tiles, capBytes);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(INDEX))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("not a shard index: " + dir);
+            in.readLong();
+            in.readLong();
+            for (int shard = 0; shard < SHARDS; shard++) {
+                dictionary.words[shard] = in.readInt();
+                if (dictionary.words[shard] > 0) dictionary.present.set(shard);
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Whether dir holds shards built from the word file as it is now
+     *
+     * @param wordFile the word file
+     * @param dir      shard directory
+     * @return true if the index matches the file's size and modification time
+     */
+    public static boolean isBuilt(String wordFile, Path dir) {
+        Path source = Paths.get(wordFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(dir.resolve(INDEX))))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == Files.size(source)
+                   && in.readLong() == Files.getLastModifiedTime(source).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Open the shards of a word file, building them first unless dir already
+     * holds shards of the file as it is now
+     *
+     * @param wordFile file with one word per line
+     * @param dir      shard directory, e.g. defaultDir(wordFile)
+     * @param tiles    board tiles the shards are searched with
+     * @param capBytes retained size the resident shards are kept under
+     * @return the dictionary, with no shard loaded yet
+     * @throws IOException if the shards can't be built or the index read
+     */
+    public static ShardedDictionary openOrBuild(String wordFile, Path dir, TileSet tiles, long capBytes)
+        throws IOException {
+        if (!isBuilt(wordFile, dir)) build(wordFile, dir);
+        return open(dir, tiles, capBytes);
+    }
+
+    /**
+     * Where shards of a word file go when no directory is given: the
+     * boggle.shardDir system property if set, else a directory of the
+     * user's under java.io.tmpdir named after the word file's absolute path.
+     * Never next to the word file, whose directory may be read-only or shared.
+     *
+     * @param wordFile the word file
+     * @return the shard directory
+     */
+    public static Path defaultDir(String wordFile) {
+        String configured = System.getProperty("boggle.shardDir");
+        if (configured != null) return Paths.get(configured);
+        String key = System.getProperty("user.name") + ":" + Paths.get(wordFile).toAbsolutePath().normalize();
+        return Paths.get(System.getProperty("java.io.tmpdir"), "boggle-shards-" + Integer.toHexString(key.hashCode()));
+    }
+
+    /**
+     * Split a word file into shards. The file is read once as a stream and
+     * the words are spread over temporary per-shard files, then each shard
+     * is built and written on its own, so memory stays bounded by the
+     * largest shard whatever the size of the file.
+     *
+     * @param wordFile file with one word per line
+     * @param dir      directory for the shards, created if needed
+     * @throws IOException if a file can't be read or written
+     */
+    public static void build(String wordFile, Path dir) throws IOException {
+        Path source = Paths.get(wordFile);
+        Files.createDirectories(dir);
+        // drop the old index first so a build that dies halfway can't leave it
+        // pointing at a mix of old and new shards; openOrBuild then rebuilds
+        Files.deleteIfExists(dir.resolve(INDEX));
+        Path parts = Files.createTempDirectory(dir, "partition");
+        try {
+            ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[SHARDS];
+            long buffered = 0;
+            try (BufferedReader in = Files.newBufferedReader(source, StandardCharsets.ISO_8859_1)) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    String word = normalize(line);
+                    if (word == null) continue;
+                    int shard = shardOf(word.charAt(0), word.charAt(1));
+                    if (buffers[shard] == null) buffers[shard] = new ByteArrayOutputStream();
+                    buffers[shard].write(word.getBytes(StandardCharsets.ISO_8859_1));
+                    buffers[shard].write('\n');
+                    buffered += word.length() + 1;
+                    if (buffered > FLUSH_BYTES) {
+                        flush(buffers, parts);
+                        buffered = 0;
+                    }
+                }
+            }
+            flush(buffers, parts);
+
+            int[] counts = new int[SHARDS];
+            for (int shard = 0; shard < SHARDS; shard++) {
+                Path part = parts.resolve(name(shard) + ".txt");
+                Path file = dir.resolve(name(shard) + ".shard");
+                if (!Files.exists(part)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Node shardRoot = new Node();
+                try (BufferedReader in = Files.newBufferedReader(part, StandardCharsets.ISO_8859_1)) {
+                    for (String word = in.readLine(); word != null; word = in.readLine()) {
+                        Node current = shardRoot;
+                        for (int i = 2; i < word.length(); i++) {
+                            int idx = word.charAt(i) - 'A';
+                            Node next = current.child(idx);
+                            if (next == null) {
+                                next = new Node();
+                                current.put(idx, next);
+                            }
+                            current = next;
+                        }
+                        if (!current.isWord) counts[shard]++;
+                        current.isWord = true;
+                    }
+                }
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                    write(shardRoot, out);
+                }
+                Files.delete(part);
+            }
+
+            // the index goes last, so an interrupted build is never taken for a finished one
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(INDEX))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(Files.size(source));
+                out.writeLong(Files.getLastModifiedTime(source).toMillis());
+                for (int count : counts) out.writeInt(count);
+            }
+        } finally {
+            try (DirectoryStream<Path> left = Files.newDirectoryStream(parts)) {
+                for (Path part : left) Files.delete(part);
+            }
+            Files.delete(parts);
+        }
+    }
+
+    // Uppercase word of an accepted line, null if the line is skipped
+    private static String normalize(String line) {
+        if (line.length() <= 2) return null;
+        char[] word = new char[line.length()];
+        for (int i = 0; i < word.length; i++) {
+            char c = (char) (line.charAt(i) & 0xDF);
+            if (c < 'A' || c > 'Z') return null;
+            word[i] = c;
+        }
+        return new String(word);
+    }
+
+    private static void flush(ByteArrayOutputStream[] buffers, Path parts) throws IOException {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            if (buffers[shard] == null || buffers[shard].size() == 0) continue;
+            try (OutputStream out = Files.newOutputStream(parts.resolve(name(shard) + ".txt"),
+                                                          StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                buffers[shard].writeTo(out);
+            }
+            buffers[shard].reset();
+        }
+    }
+
+    private static void write(Node node, DataOutputStream out) throws IOException {
+        out.writeByte(node.isWord ? 1 : 0);
+        out.writeByte(node.childCount());
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+            out.writeByte(c);
+            write(node.child(c), out);
+        }
+    }
+
+    /**
+     * Shard of the words starting with two letters
+     *
+     * @param first  first letter, A-Z
+     * @param second second letter, A-Z
+     * @return the shard number
+     */
+    public static int shardOf(char first, char second) {
+        return (first - 'A') * 26 + (second - 'A');
+    }
+
+    private static String name(int shard) {
+        return "" + (char) ('A' + shard / 26) + (char) ('A' + shard % 26);
+    }
+
+    public TileSet getTileSet() {
+        return tiles;
+    }
+
+    /**
+     * Root of a snapshot holding (at least) the given shards, loading the
+     * missing ones and evicting cold ones to stay under the cap
+     *
+     * @param wanted shard numbers; shards without words are ignored
+     * @return the snapshot root, to be searched like CompressedTrie.getRoot()
+     * @throws UncheckedIOException if a shard file can't be read
+     */
+    public Node acquire(BitSet wanted) {
+        BitSet needed = (BitSet) wanted.clone();
+        needed.and(present);
+        long now = clock.incrementAndGet();
+        Snapshot snapshot = current;
+        BitSet missing = (BitSet) needed.clone();
+        missing.andNot(snapshot.resident);
+        if (missing.isEmpty()) {
+            touch(needed, now);
+            hits.addAndGet(needed.cardinality());
+            return snapshot.root;
+        }
+
+        synchronized (this) {
+            boolean changed = false;
+            for (int shard = needed.nextSetBit(0); shard >= 0; shard = needed.nextSetBit(shard + 1)) {
+                if (shards[shard] != null) {
+                    hits.incrementAndGet();
+                    continue;
+                }
+                misses.incrementAndGet();
+                load(shard);
+                changed = true;
+            }
+            touch(needed, now);
+            // least recently used first, never one the caller needs
+            while (residentBytes > capBytes) {
+                int coldest = -1;
+                for (int shard = 0; shard < SHARDS; shard++) {
+                    if (shards[shard] == null || needed.get(shard)) continue;
+                    if (coldest < 0 || lastUse.get(shard) < lastUse.get(coldest)) coldest = shard;
+                }
+                if (coldest < 0) break;
+                shards[coldest] = null;
+                residentBytes -= shardBytes[coldest];
+                evictions.incrementAndGet();
+                changed = true;
+            }
+            if (changed) publish();
+            return current.root;
+        }
+    }
+
+    private void touch(BitSet shardSet, long now) {
+        for (int shard = shardSet.nextSetBit(0); shard >= 0; shard = shardSet.nextSetBit(shard + 1)) {
+            lastUse.set(shard, now);
+        }
+    }
+
+    // Read one shard, with its masks and tile edges (caller holds the lock)
+    private void load(int shard) {
+        long start = System.nanoTime();
+        byte[] data;
+        try {
+            data = Files.readAllBytes(dir.resolve(name(shard) + ".shard"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("can't read shard " + name(shard), e);
+        }
+        ShardReader in = new ShardReader(data);
+        Node shardRoot = in.read();
+        if (in.pos != data.length || in.wordCount != words[shard]) {
+            throw new UncheckedIOException(new IOException("corrupt shard " + name(shard)));
+        }
+        shards[shard] = shardRoot;
+        shardBytes[shard] = new TrieMemoryReport(shardRoot).totalBytes();
+        residentBytes += shardBytes[shard];
+        loadNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private final class ShardReader {
+        final byte[] data;
+        int pos;
+        int wordCount;
+
+        ShardReader(byte[] data) {
+            this.data = data;
+        }
+
+        Node read() {
+            Node node = new Node();
+            int flags = data[pos++];
+            int children = data[pos++] & 0xFF;
+            if ((flags & 1) != 0) {
+                node.isWord = true;
+                wordCount++;
+            }
+            for (int k = 0; k < children; k++) {
+                int letter = data[pos++];
+                node.put(letter, read());
+            }
+            node.updateRequiredMask();
+            node.updateTileEdges(tiles);
+            return node;
+        }
+    }
+
+    // New root and first-letter nodes over the resident shards (caller holds the lock).
+    // Their tile edges reach into the shards (TH from the root is shard TH, from A
+    // it is a node of shard AT), so they are worked out again each time.
+    private void publish() {
+        Node root = new Node();
+        BitSet resident = new BitSet(SHARDS);
+        for (int first = 0; first < 26; first++) {
+            Node node = null;
+            for (int second = 0; second < 26; second++) {
+                int shard = first * 26 + second;
+                if (shards[shard] == null) continue;
+                if (node == null) node = new Node();
+                node.put(second, shards[shard]);
+                resident.set(shard);
+            }
+            if (node == null) continue;
+            node.updateRequiredMask();
+            node.updateTileEdges(tiles);
+            root.put(first, node);
+        }
+        root.updateRequiredMask();
+        root.updateTileEdges(tiles);
+        current = new Snapshot(root, resident);
+    }
+
+    // Whether any word starts with a letter (A-Z), without loading a shard
+    public boolean startsWith(char letter) {
+        int first = (letter - 'A') * 26;
+        int shard = present.nextSetBit(first);
+        return shard >= 0 && shard < first + 26;
+    }
+
+    // Check whether a word (uppercase A-Z) is in the dictionary
+    public boolean contains(String word) {
+        if (word.length() < 3) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) < 'A' || word.charAt(i) > 'Z') return false;
+        }
+        BitSet shard = new BitSet(SHARDS);
+        shard.set(shardOf(word.charAt(0), word.charAt(1)));
+        Node node = acquire(shard);
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i) - 'A');
+        }
+        return node != null && node.isWord;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Dump the shard counters: requests served by a resident shard (hits),
+     * shards read from disk (misses), shards dropped (evictions)
+     *
+     * @param out where to print
+     */
+    public void printMetrics(PrintStream out) {
+        long requests = hits.get() + misses.get();
+        out.printf("shards: %d hits, %d misses (%.2f%% hit rate), %d evictions, %.1f ms loading\n", hits.get(),
+                   misses.get(), requests == 0 ? 0 : 100.0 * hits.get() / requests, evictions.get(),
+                   loadNanos.get() / 1e6);
+        synchronized (this) {
+            out.printf("resident: %d of %d shards, %.1f MB (cap %.1f MB)\n", current.resident.cardinality(),
+                       present.cardinality(), residentBytes / 1e6, capBytes / 1e6);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: ShardedDictionary wordFile shardDir [capMB [boards]]");
+            System.exit(-1);
+        }
+        Path dir = Paths.get(args[1]);
+        long capBytes = (args.length > 2 ? Long.parseLong(args[2]) : 64) << 20;
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+        if (!ShardedDictionary.isBuilt(args[0], dir)) {
+            long start = System.nanoTime();
+            build(args[0], dir);
+            System.out.printf("built shards in %.1f s\n", (System.nanoTime() - start) / 1e9);
+        }
+        ShardedDictionary dictionary = open(dir, TileSet.CLASSIC, capBytes);
+        ShardedBogglePlayer sharded = new ShardedBogglePlayer(dictionary);
+        BogglePlayer full = new BogglePlayer(args[0]);
+
+        int differ = 0;
+        long start = System.nanoTime();
+        for (int b = 0; b < count; b++) {
+            char[][] board = BoggleBoards.randomBoard(b);
+            Word[] got = sharded.getWords(board);
+            Word[] expected = full.getWords(board);
+            if (!Arrays.equals(Arrays.stream(got).map(Word::getWord).toArray(),
+                               Arrays.stream(expected).map(Word::getWord).toArray())) {
+                differ++;
+            }
+        }
+        System.out.printf("%d boards in %.1f s, %d differ from the fully loaded trie\n", count,
+                          (System.nanoTime() - start) / 1e9, differ);
+        dictionary.printMetrics(System.out);
+        sharded.getLatencyHistogram().print(System.out);
+    }
+}
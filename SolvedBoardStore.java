@@ -0,0 +1,492 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import java.util.zip.*;
+
+/*
+  Persistent store of solved boards.
+
+  Two kinds of file in the store directory:
+
+  boards.dat  header: int magic, int format version, long dictionary
+              fingerprint; then append-only records, one per board:
+                int   record length (bytes after this field)
+                long  board key, high part
+                long  board key, low part
+                byte  number of words
+                per word: byte path length, then the path packed as one
+                cell index (row * 4 + col) per 4 bits
+              The word text is not stored: it is spelled by the path on the
+              board (each cell spells its tile, e.g. a Q cell "QU").
+
+  boards.<generation>.idx
+              long length of boards.dat covered by the index, long
+              dictionary fingerprint, then a sorted array of (long high,
+              long low, long offset) entries, memory-mapped and binary
+              searched in place. Each flush writes the next generation
+              instead of replacing the mapped file, which Windows refuses;
+              older generations are deleted once they can be.
+
+  A board key packs the 16 cells at 5 bits each (80 bits) into two longs:
+  the letter index for A-Z, the tile id (26-31) for other tile chars.
+  Records appended since the last flush are found through an in-memory map
+  until flush() merges them into a new index.
+
+  Stored words are only valid for the dictionary and tile set that found
+  them. The fingerprint (CRC32 of every word in the trie and of the
+  multi-letter tiles, with the word count) is checked when the store is
+  opened and whenever the player's dictionary snapshot changes (see
+  BogglePlayer.updateDictionary); a different one empties the store.
+
+  Usage: SolvedBoardStore wordFile storeDir firstSeed count
+*/
+public class SolvedBoardStore implements Closeable {
+    private static final int MAGIC = 0x42475342; // "BGSB"
+    private static final int VERSION = 2;
+    private static final int DATA_HEADER = 4 + 4 + 8;
+    private static final int INDEX_HEADER = 8 + 8;
+    private static final int ENTRY_BYTES = 24;
+    private static final int RECORD_HEADER = 8 + 8 + 1;
+
+    private final Path dir;
+    private final FileChannel data;
+    private final BogglePlayer player;
+    private final TileSet tiles;
+
+    private volatile MappedByteBuffer index; // header + sorted entries, null if not written yet
+    private long generation; // of the mapped index file, 0 before the first one
+    // Dictionary the stored words belong to, and the last snapshot checked against it
+    private volatile long fingerprint;
+    private volatile Node checkedRoot;
+    private final Map<BoardKey, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Open (or create) a store
+     *
+     * @param storeDir directory holding boards.dat and the index files
+     * @param player   solver used on lookup misses and for bulk builds; a store
+     *                 written with another dictionary or tile set is emptied
+     * @throws IOException if the files can't be opened
+     */
+    public SolvedBoardStore(String storeDir, BogglePlayer player) throws IOException {
+        dir = Paths.get(storeDir);
+        Files.createDirectories(dir);
+        data = FileChannel.open(dir.resolve("boards.dat"), StandardOpenOption.CREATE,
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.player = player;
+        this.tiles = player.getDictionary().getTileSet();
+        Node root = player.getDictionary().getRoot();
+        fingerprint = fingerprint(root, tiles);
+        checkedRoot = root;
+        if (!headerMatches()) clear(fingerprint);
+        mapIndex();
+        recoverPending();
+    }
+
+    /**
+     * Look up a solved board, falling back to the solver on a miss
+     * (the solved result is appended to the store)
+     *
+     * @param board the board
+     * @return the words found on the board
+     * @throws IOException if the store can't be read or written
+     */
+    public Word[] getWords(char[][] board) throws IOException {
+        Node root = currentDictionary();
+        Word[] words = lookup(board);
+        if (words == null) {
+            words = player.getWords(board);
+            append(board, words, root);
+        }
+        return words;
+    }
+
+    /**
+     * Look up a solved board without solving it
+     *
+     * @param board the board
+     * @return the stored words, or null if the board isn't in the store
+     * @throws IOException if the data file can't be read
+     */
+    public Word[] lookup(char[][] board) throws IOException {
+        currentDictionary();
+        BoardKey key = BoardKey.of(board, tiles);
+        long offset = find(key);
+        if (offset < 0) return null;
+        ByteBuffer record = readRecord(offset, key);
+        return record == null ? null : decode(record, board, tiles);
+    }
+
+    /**
+     * Solve the boards of a seed range in parallel and store the ones not
+     * stored yet, then flush the index
+     *
+     * @param firstSeed first seed of the range
+     * @param count     number of seeds
+     * @return number of boards added
+     * @throws IOException if the store can't be written
+     */
+    public int bulkBuild(long firstSeed, long count) throws IOException {
+        Node root = currentDictionary();
+        int before = pending.size();
+        try {
+            LongStream.range(firstSeed, firstSeed + count).parallel().forEach(seed -> {
+                char[][] board = BoggleBoards.randomBoard(seed);
+                if (find(BoardKey.of(board, tiles)) >= 0) return;
+                Word[] words = player.getWords(board);
+                try {
+                    append(board, words, root);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        int added = pending.size() - before;
+        flush();
+        return added;
+    }
+
+    // Append a board solved with the given dictionary snapshot, unless another
+    // thread stored it first or the dictionary changed since (the words may
+    // belong to either snapshot then, so they aren't kept)
+    private synchronized void append(char[][] board, Word[] words, Node root) throws IOException {
+        if (root != checkedRoot || player.getDictionary().getRoot() != root) return;
+        BoardKey key = BoardKey.of(board, tiles);
+        if (find(key) >= 0) return;
+        ByteBuffer record = encode(key, words);
+        long offset = data.size();
+        while (record.hasRemaining()) {
+            data.write(record, offset + record.position());
+        }
+        pending.put(key, offset);
+    }
+
+    /**
+     * Merge the records appended since the last flush into the index file
+     *
+     * @throws IOException if the index can't be written
+     */
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) return;
+        data.force(false);
+
+        int indexed = indexEntries(index);
+        List<long[]> entries = new ArrayList<>(indexed + pending.size());
+        for (int i = 0; i < indexed; i++) {
+            int base = INDEX_HEADER + i * ENTRY_BYTES;
+            entries.add(new long[] { index.getLong(base), index.getLong(base + 8), index.getLong(base + 16) });
+        }
+        for (Map.Entry<BoardKey, Long> e : pending.entrySet()) {
+            entries.add(new long[] { e.getKey().high, e.getKey().low, e.getValue() });
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        // write the next generation next to the mapped one and swap it in atomically
+        Path tmp = dir.resolve("boards.idx.tmp");
+        ByteBuffer out = ByteBuffer.allocate(INDEX_HEADER + entries.size() * ENTRY_BYTES);
+        out.putLong(data.size()).putLong(fingerprint);
+        for (long[] e : entries) {
+            out.putLong(e[0]).putLong(e[1]).putLong(e[2]);
+        }
+        out.flip();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) ch.write(out);
+            ch.force(true);
+        }
+        Files.move(tmp, indexFile(generation + 1), StandardCopyOption.ATOMIC_MOVE);
+        mapIndex();
+        pending.clear();
+    }
+
+    private Path indexFile(long generation) {
+        return dir.resolve("boards." + generation + ".idx");
+    }
+
+    // Generations of the index files in the store directory
+    private List<Long> indexGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "boards.*.idx")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring("boards.".length(), name.length() - ".idx".length())));
+                } catch (NumberFormatException e) {
+                    // not an index file of this store
+                }
+            }
+        }
+        return generations;
+    }
+
+    // Delete the index files other than the given generation; a file still
+    // mapped (on Windows) is left for the next open
+    private void deleteIndexFiles(long keep) throws IOException {
+        for (long g : indexGenerations()) {
+            if (g == keep) continue;
+            try {
+                Files.deleteIfExists(indexFile(g));
+            } catch (IOException e) {
+                // still mapped
+            }
+        }
+    }
+
+    /**
+     * Number of boards in the store
+     *
+     * @return stored boards
+     */
+    public int size() {
+        return indexEntries(index) + pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        data.close();
+    }
+
+    // Map the newest index generation, if it belongs to the current dictionary
+    private void mapIndex() throws IOException {
+        long newest = 0;
+        for (long g : indexGenerations()) newest = Math.max(newest, g);
+        generation = newest;
+        deleteIndexFiles(newest);
+        // readers keep the old mapping until the new one is published in one write
+        MappedByteBuffer mapped = null;
+        if (newest != 0) {
+            try (FileChannel ch = FileChannel.open(indexFile(newest), StandardOpenOption.READ)) {
+                mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            }
+            if (mapped.capacity() < INDEX_HEADER || mapped.getLong(8) != fingerprint) mapped = null;
+        }
+        index = mapped;
+    }
+
+    // Whether boards.dat has this format and the current dictionary's fingerprint
+    private boolean headerMatches() throws IOException {
+        if (data.size() < DATA_HEADER) return false;
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        data.read(header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getLong(8) == fingerprint;
+    }
+
+    // Drop every stored board and start over for another dictionary
+    private synchronized void clear(long newFingerprint) throws IOException {
+        fingerprint = newFingerprint;
+        index = null;
+        pending.clear();
+        data.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(newFingerprint).flip();
+        while (header.hasRemaining()) data.write(header, header.position());
+        data.force(false);
+        // the next flush writes a newer generation than any left behind
+        generation = Math.max(generation, indexGenerations().stream().mapToLong(Long::longValue).max().orElse(0));
+        deleteIndexFiles(-1);
+    }
+
+    // The dictionary snapshot the player solves with now, after making sure the
+    // stored words belong to it
+    private Node currentDictionary() throws IOException {
+        Node root = player.getDictionary().getRoot();
+        if (root != checkedRoot) checkDictionary(root);
+        return root;
+    }
+
+    private synchronized void checkDictionary(Node root) throws IOException {
+        if (root == checkedRoot) return;
+        // an update that leaves the same words (e.g. adds and removes one) keeps the store
+        long current = fingerprint(root, tiles);
+        if (current != fingerprint) clear(current);
+        checkedRoot = root;
+    }
+
+    /**
+     * Fingerprint of a dictionary snapshot as solved with some tiles: the word
+     * count in the high half, a CRC32 of the multi-letter tiles and of every
+     * word in letter order in the low half
+     *
+     * @param root  root of the dictionary trie
+     * @param tiles board tiles
+     * @return the fingerprint
+     */
+    static long fingerprint(Node root, TileSet tiles) {
+        CRC32 crc = new CRC32();
+        for (int id = TileSet.LETTERS; id < TileSet.MAX_TILES; id++) {
+            String letters = tiles.letters(id);
+            if (letters != null) crc.update((id + letters + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        long words = addWords(root, new byte[32], 0, crc);
+        return (words << 32) | crc.getValue();
+    }
+
+    // Add the words below node to the checksum, path holding the letters above it
+    private static long addWords(Node node, byte[] path, int depth, CRC32 crc) {
+        long words = 0;
+        if (node.isWord) {
+            crc.update(path, 0, depth);
+            crc.update('\n');
+            words++;
+        }
+        if (depth == path.length) path = Arrays.copyOf(path, depth * 2);
+        for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+            path[depth] = (byte) ('A' + c);
+            words += addWords(node.child(c), path, depth + 1, crc);
+        }
+        return words;
+    }
+
+    private static int indexEntries(MappedByteBuffer idx) {
+        return idx == null ? 0 : (idx.capacity() - INDEX_HEADER) / ENTRY_BYTES;
+    }
+
+    // Records appended after the last flush (e.g. by a process that exited
+    // without closing the store) are put back into the pending map
+    private void recoverPending() throws IOException {
+        long end = index == null ? DATA_HEADER : index.getLong(0);
+        long size = data.size();
+        while (end + 4 <= size) {
+            int length = readLength(end);
+            if (end + 4 + length > size) break; // torn write at the tail
+            ByteBuffer header = ByteBuffer.allocate(16);
+            data.read(header, end + 4);
+            pending.put(new BoardKey(header.getLong(0), header.getLong(8)), end);
+            end += 4 + length;
+        }
+        if (end < size) data.truncate(end);
+    }
+
+    // Binary search the mapped index, then the pending map; -1 if absent
+    private long find(BoardKey key) {
+        MappedByteBuffer idx = index;
+        int lo = 0, hi = indexEntries(idx) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int base = INDEX_HEADER + mid * ENTRY_BYTES;
+            long h = idx.getLong(base);
+            int cmp = h != key.high ? Long.compare(h, key.high) : Long.compare(idx.getLong(base + 8), key.low);
+            if (cmp == 0) return idx.getLong(base + 16);
+            if (cmp < 0) lo = mid + 1;
+            else hi = mid - 1;
+        }
+        Long offset = pending.get(key);
+        return offset == null ? -1 : offset;
+    }
+
+    private int readLength(long offset) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        data.read(length, offset);
+        return length.getInt(0);
+    }
+
+    // The record at offset, or null if it isn't the key's: the store was
+    // cleared for another dictionary after find() returned the offset
+    private ByteBuffer readRecord(long offset, BoardKey key) throws IOException {
+        long size = data.size();
+        if (offset + 4 + RECORD_HEADER > size) return null;
+        int length = readLength(offset);
+        if (length < RECORD_HEADER || offset + 4 + length > size) return null;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        while (record.hasRemaining()) {
+            if (data.read(record, offset + 4 + record.position()) < 0) return null;
+        }
+        record.flip();
+        return record.getLong(0) == key.high && record.getLong(8) == key.low ? record : null;
+    }
+
+    private static ByteBuffer encode(BoardKey key, Word[] words) {
+        int length = RECORD_HEADER;
+        for (Word w : words) length += 1 + (w.getPathLength() + 1) / 2;
+        ByteBuffer out = ByteBuffer.allocate(4 + length);
+        out.putInt(length).putLong(key.high).putLong(key.low).put((byte) words.length);
+        for (Word w : words) {
+            int pathLength = w.getPathLength();
+            out.put((byte) pathLength);
+            for (int i = 0; i < pathLength; i += 2) {
+                int first = w.getLetterRow(i) * 4 + w.getLetterCol(i);
+                int second = i + 1 < pathLength ? w.getLetterRow(i + 1) * 4 + w.getLetterCol(i + 1) : 0;
+                out.put((byte) ((first << 4) | second));
+            }
+        }
+        out.flip();
+        return out;
+    }
+
+    private static Word[] decode(ByteBuffer record, char[][] board, TileSet tiles) {
+        record.position(RECORD_HEADER - 1);
+        Word[] words = new Word[record.get() & 0xFF];
+        StringBuilder text = new StringBuilder(16);
+        for (int w = 0; w < words.length; w++) {
+            int pathLength = record.get() & 0xFF;
+            ArrayList<Location> path = new ArrayList<>(pathLength);
+            int packed = 0;
+            text.setLength(0);
+            for (int i = 0; i < pathLength; i++) {
+                if ((i & 1) == 0) packed = record.get() & 0xFF;
+                int cell = (i & 1) == 0 ? packed >>> 4 : packed & 0xF;
+                text.append(tiles.spell(board[cell / 4][cell % 4]));
+                path.add(new Location(cell / 4, cell % 4));
+            }
+            words[w] = new Word(text.toString());
+            words[w].setPath(path);
+        }
+        return words;
+    }
+
+    // 16 cells at 5 bits each: cells 0-11 in low (60 bits), cells 12-15 in high
+    static final class BoardKey {
+        final long high, low;
+
+        BoardKey(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        static BoardKey of(char[][] board, TileSet tiles) {
+            long high = 0, low = 0;
+            for (int cell = 0; cell < 16; cell++) {
+                char c = board[cell / 4][cell % 4];
+                // letters keep their index even when they are a multi-letter tile (Q),
+                // so classic keys don't depend on the tile set
+                long letter = c >= 'A' && c <= 'Z' ? c - 'A' : tiles.tileId(c);
+                if (letter < 0) throw new IllegalArgumentException("not a tile: " + c);
+                if (cell < 12) low |= letter << (5 * cell);
+                else high |= letter << (5 * (cell - 12));
+            }
+            return new BoardKey(high, low);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BoardKey && ((BoardKey) o).high == high && ((BoardKey) o).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 31 + low);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: SolvedBoardStore wordFile storeDir firstSeed count");
+            System.exit(-1);
+        }
+        BogglePlayer player = new BogglePlayer(args[0]);
+        try (SolvedBoardStore store = new SolvedBoardStore(args[1], player)) {
+            long start = System.nanoTime();
+            int added = store.bulkBuild(Long.parseLong(args[2]), Long.parseLong(args[3]));
+            System.out.printf("Added %d boards in %.2f s, %d boards stored\n",
+                              added, (System.nanoTime() - start) / 1e9, store.size());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.*;
+
+/*
+  Benchmark runner and regression tracker for BogglePlayer.
+
+  Runs a fixed corpus of seeded boards (seeds 0 .. boards-1) through
+  getWords in several forked JVMs. Each fork loads the dictionary, runs
+  warmup passes over the corpus, then timed passes; every timed pass gives
+  one sample of time and allocation per board. The samples, the retained
+  trie size and the total points (to catch result changes) are written as
+  JSON to test-results/benchmarks/<git revision>.json.
+
+  With --baseline, the run is compared with a stored result. Passes in
+  one JVM share its JIT decisions, heap layout and so on, and vary far less
+  than JVMs do, so they aren't independent samples: the mean of each fork
+  is one sample. For time and allocation the difference of means gets a 95%
+  confidence interval (Welch, Student t over the forks), and a change is
+  flagged as a regression when the whole interval is above zero and the
+  change is more than 1%; comparing needs at least 2 forks on both sides.
+  Trie memory is deterministic and is flagged on any increase, and so is
+  any change in total points over the same boards. The exit status is 1
+  when something regressed.
+
+  Usage: SolverBenchmark wordFile [--boards N] [--warmup N] [--iterations N]
+                                  [--forks N] [--baseline file.json] [--out dir]
+*/
+public class SolverBenchmark {
+    private static final double MIN_REGRESSION = 0.01; // ignore changes under 1%
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 1 && args[0].equals("--fork")) {
+            runFork(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+            return;
+        }
+        if (args.length < 1) {
+            System.err.println("Usage: SolverBenchmark wordFile [--boards N] [--warmup N] [--iterations N]");
+            System.err.println("                                [--forks N] [--baseline file.json] [--out dir]");
+            System.exit(-1);
+        }
+        String wordFile = args[0];
+        int boards = 500, warmup = 20, iterations = 10, forks = 3;
+        String baseline = null, outDir = "test-results/benchmarks";
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Missing value for " + args[i]);
+                System.exit(-1);
+            }
+            switch (args[i]) {
+                case "--boards": boards = Integer.parseInt(args[i + 1]); break;
+                case "--warmup": warmup = Integer.parseInt(args[i + 1]); break;
+                case "--iterations": iterations = Integer.parseInt(args[i + 1]); break;
+                case "--forks": forks = Integer.parseInt(args[i + 1]); break;
+                case "--baseline": baseline = args[i + 1]; break;
+                case "--out": outDir = args[i + 1]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(-1);
+            }
+        }
+
+        Result result = new Result();
+        result.revision = gitRevision();
+        result.boards = boards;
+        result.forks = forks;
+        for (int f = 0; f < forks; f++) {
+            System.out.println("Fork " + (f + 1) + "/" + forks + "...");
+            collectFork(result, wordFile, boards, warmup, iterations);
+        }
+
+        Path out = Paths.get(outDir, result.revision + ".json");
+        Files.createDirectories(out.getParent());
+        Files.write(out, result.toJson().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + out);
+        result.print(System.out);
+
+        if (baseline != null) {
+            Result base = Result.fromJson(new String(Files.readAllBytes(Paths.get(baseline)), StandardCharsets.UTF_8));
+            if (!compare(base, result, System.out)) System.exit(1);
+        }
+    }
+
+    // Start a child JVM on the same class path and read its samples
+    private static void collectFork(Result result, String wordFile, int boards, int warmup, int iterations)
+        throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                           "SolverBenchmark", "--fork", wordFile, String.valueOf(boards),
+                                           String.valueOf(warmup), String.valueOf(iterations))
+            .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(" ");
+                switch (parts[0]) {
+                    case "sample":
+                        result.timeNs.add(Double.parseDouble(parts[1]));
+                        result.allocBytes.add(Double.parseDouble(parts[2]));
+                        break;
+                    case "trie": result.trieBytes = Long.parseLong(parts[1]); break;
+                    case "points": result.points = Long.parseLong(parts[1]); break;
+                    default: break;
+                }
+            }
+        }
+        if (child.waitFor() != 0) throw new IOException("benchmark fork failed");
+    }
+
+    // Child side: one line per timed pass, per-board averages
+    private static void runFork(String wordFile, int boards, int warmup, int iterations) {
+        BogglePlayer player = new BogglePlayer(wordFile);
+        char[][][] corpus = new char[boards][][];
+        for (int b = 0; b < boards; b++) corpus[b] = BoggleBoards.randomBoard(b);
+
+        System.out.println("trie " + new TrieMemoryReport(player.getDictionary()).totalBytes());
+        long points = 0;
+        for (char[][] board : corpus) {
+            for (Word w : player.getWords(board)) points += BoggleScorer.wordPoints(w.getWord());
+        }
+        System.out.println("points " + points);
+
+        for (int i = 0; i < warmup; i++) solveAll(player, corpus);
+        for (int i = 0; i < iterations; i++) {
+            long[] time = new long[1];
+            long allocated = TrieMemoryReport.allocatedBytes(() -> time[0] = solveAll(player, corpus));
+            System.out.println("sample " + (double) time[0] / boards + " " + (double) allocated / boards);
+        }
+    }
+
+    private static long solveAll(BogglePlayer player, char[][][] corpus) {
+        long start = System.nanoTime();
+        for (char[][] board : corpus) player.getWords(board);
+        return System.nanoTime() - start;
+    }
+
+    // Print the comparison; false if anything regressed
+    static boolean compare(Result base, Result current, PrintStream out) {
+        out.println("Compared with " + base.revision + ":");
+        boolean ok = true;
+        ok &= compareSamples("time ns/board", base.forkMeans(base.timeNs), current.forkMeans(current.timeNs), out);
+        ok &= compareSamples("alloc bytes/board", base.forkMeans(base.allocBytes),
+                             current.forkMeans(current.allocBytes), out);
+        long trieDelta = current.trieBytes - base.trieBytes;
+        boolean trieRegressed = trieDelta > 0;
+        out.printf("  %-18s %,d -> %,d (%+,d)%s\n", "trie bytes", base.trieBytes, current.trieBytes, trieDelta,
+                   trieRegressed ? "  REGRESSION" : "");
+        boolean pointsChanged = base.boards == current.boards && base.points != current.points;
+        if (pointsChanged) {
+            out.printf("  points changed: %d -> %d (results differ)  REGRESSION\n", base.points, current.points);
+        }
+        return ok && !trieRegressed && !pointsChanged;
+    }
+
+    // base and current are per-fork means
+    private static boolean compareSamples(String name, List<Double> base, List<Double> current, PrintStream out) {
+        double baseMean = mean(base), currentMean = mean(current);
+        double diff = currentMean - baseMean;
+        if (base.size() < 2 || current.size() < 2) {
+            out.printf("  %-18s %.1f -> %.1f (%+.1f%%, no interval: fewer than 2 forks)\n", name, baseMean,
+                       currentMean, 100 * diff / baseMean);
+            return true;
+        }
+        // Welch: standard error of the difference of means, with the
+        // Welch-Satterthwaite degrees of freedom for the t quantile
+        double vb = variance(base) / base.size(), vc = variance(current) / current.size();
+        double se = Math.sqrt(vb + vc);
+        double df = se == 0 ? base.size() + current.size() - 2
+                            : (vb + vc) * (vb + vc) / (vb * vb / (base.size() - 1) + vc * vc / (current.size() - 1));
+        double t = tQuantile975(df);
+        double low = diff - t * se, high = diff + t * se;
+        boolean regressed = low > 0 && diff > MIN_REGRESSION * baseMean;
+        boolean improved = high < 0 && -diff > MIN_REGRESSION * baseMean;
+        out.printf("  %-18s %.1f -> %.1f (%+.1f%%, 95%% CI of diff [%.1f, %.1f])%s\n", name, baseMean, currentMean,
+                   100 * diff / baseMean, low, high, regressed ? "  REGRESSION" : improved ? "  improved" : "");
+        return !regressed;
+    }
+
+    // Two-sided 95% quantile of Student's t; fractional degrees of freedom
+    // are rounded down, which widens the interval
+    static double tQuantile975(double df) {
+        final double[] table = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+        };
+        int n = (int) Math.max(1, Math.floor(df));
+        if (n <= table.length) return table[n - 1];
+        // Cornish-Fisher expansion around the normal quantile, within 0.001 here
+        double z = 1.96;
+        return z + (z * z * z + z) / (4 * n);
+    }
+
+    static double mean(List<Double> samples) {
+        double sum = 0;
+        for (double s : samples) sum += s;
+        return sum / samples.size();
+    }
+
+    static double variance(List<Double> samples) {
+        if (samples.size() < 2) return 0;
+        double m = mean(samples), sum = 0;
+        for (double s : samples) sum += (s - m) * (s - m);
+        return sum / (samples.size() - 1);
+    }
+
+    private static String gitRevision() {
+        try {
+            String rev = run("git", "rev-parse", "--short", "HEAD");
+            return run("git", "status", "--porcelain", "--untracked-files=no").isEmpty() ? rev : rev + "-dirty";
+        } catch (IOException | InterruptedException e) {
+            return "unknown";
+        }
+    }
+
+    private static String run(String... command) throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        if (p.waitFor() != 0) throw new IOException(output);
+        return output;
+    }
+
+    // One benchmark run, stored as flat JSON
+    static class Result {
+        String revision;
+        int boards;
+        int forks;
+        long trieBytes;
+        long points;
+        final List<Double> timeNs = new ArrayList<>();
+        final List<Double> allocBytes = new ArrayList<>();
+
+        // Mean of each fork's samples (the samples are stored fork by fork)
+        List<Double> forkMeans(List<Double> samples) {
+            List<Double> means = new ArrayList<>(forks);
+            int perFork = samples.size() / forks;
+            for (int f = 0; f < forks; f++) means.add(mean(samples.subList(f * perFork, (f + 1) * perFork)));
+            return means;
+        }
+
+        String toJson() {
+            return "{\n"
+                + "  \"revision\": \"" + revision + "\",\n"
+                + "  \"boards\": " + boards + ",\n"
+                + "  \"forks\": " + forks + ",\n"
+                + "  \"trieBytes\": " + trieBytes + ",\n"
+                + "  \"points\": " + points + ",\n"
+                + "  \"timeNsPerBoard\": " + timeNs + ",\n"
+                + "  \"allocBytesPerBoard\": " + allocBytes + "\n"
+                + "}\n";
+        }
+
+        // Reads the format written by toJson
+        static Result fromJson(String json) {
+            Result r = new Result();
+            r.revision = field(json, "\"revision\"\\s*:\\s*\"([^\"]*)\"");
+            r.boards = Integer.parseInt(field(json, "\"boards\"\\s*:\\s*(\\d+)"));
+            r.forks = Integer.parseInt(field(json, "\"forks\"\\s*:\\s*(\\d+)"));
+            r.trieBytes = Long.parseLong(field(json, "\"trieBytes\"\\s*:\\s*(\\d+)"));
+            r.points = Long.parseLong(field(json, "\"points\"\\s*:\\s*(\\d+)"));
+            parseArray(field(json, "\"timeNsPerBoard\"\\s*:\\s*\\[([^\\]]*)\\]"), r.timeNs);
+            parseArray(field(json, "\"allocBytesPerBoard\"\\s*:\\s*\\[([^\\]]*)\\]"), r.allocBytes);
+            return r;
+        }
+
+        // 95% half-width of the mean over forks, 0 with a single fork
+        private static double halfWidth(List<Double> forkMeans) {
+            if (forkMeans.size() < 2) return 0;
+            return tQuantile975(forkMeans.size() - 1) * Math.sqrt(variance(forkMeans) / forkMeans.size());
+        }
+
+        private static String field(String json, String regex) {
+            Matcher m = Pattern.compile(regex).matcher(json);
+            if (!m.find()) throw new IllegalArgumentException("not a benchmark result: missing " + regex);
+            return m.group(1);
+        }
+
+        private static void parseArray(String values, List<Double> into) {
+            for (String v : values.split(",")) {
+                if (!v.trim().isEmpty()) into.add(Double.parseDouble(v.trim()));
+            }
+        }
+
+        void print(PrintStream out) {
+            out.printf("Revision %s, %d boards, %d forks, %d samples\n", revision, boards, forks, timeNs.size());
+            out.printf("  time ns/board:     %.1f +- %.1f\n", mean(timeNs), halfWidth(forkMeans(timeNs)));
+            out.printf("  alloc bytes/board: %.1f +- %.1f\n", mean(allocBytes), halfWidth(forkMeans(allocBytes)));
+            out.printf("  trie bytes:        %,d\n", trieBytes);
+            out.printf("  points:            %d\n", points);
+        }
+    }
+}
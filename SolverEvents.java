@@ -0,0 +1,106 @@
+import jdk.jfr.*;
+
+/*
+  Java Flight Recorder events of the solver.
+
+  Record with e.g.
+    java -XX:StartFlightRecording=filename=boggle.jfr,settings=profile ...
+  and the events show up under "Boggle" in JDK Mission Control, next to the
+  GC and safepoint events, so a slow solve can be matched with a pause or
+  pinned to the board that caused it.
+
+  Events are disabled unless a recording enables them. Callers don't even
+  create an event before Flight Recorder is initialized (see enabled()):
+  the first event class to load sets JFR up, which would cost a few hundred
+  milliseconds in the first solve of a process that never records. Callers
+  only build the expensive fields (the board id) once shouldCommit() says
+  the event is recorded, and an event that isn't committed costs a couple
+  of field writes.
+  The per-call events skip the stack trace, which would dominate the cost
+  of recording them; raise their threshold to keep only the slow calls.
+*/
+public final class SolverEvents {
+    private SolverEvents() {
+    }
+
+    @Name("boggle.DictionaryLoad")
+    @Label("Dictionary Load")
+    @Category("Boggle")
+    @Description("Word file loaded into a trie")
+    public static class DictionaryLoad extends Event {
+        @Label("Word File")
+        public String wordFile;
+
+        @Label("File Size")
+        @DataAmount
+        public long fileBytes;
+
+        @Label("Words")
+        public int words;
+    }
+
+    @Name("boggle.BoardSolve")
+    @Label("Board Solve")
+    @Category("Boggle")
+    @Description("One getWords call")
+    @Threshold("0 ms")
+    @StackTrace(false)
+    public static class BoardSolve extends Event {
+        @Label("Engine")
+        public String engine;
+
+        @Label("Board")
+        @Description("The 16 cells, row by row")
+        public String board;
+
+        @Label("Max Words")
+        public int maxWords;
+
+        @Label("Nodes Visited")
+        public long nodesVisited;
+
+        @Label("Words Found")
+        public int wordsFound;
+    }
+
+    @Name("boggle.Validation")
+    @Label("Validation")
+    @Category("Boggle")
+    @Description("Submitted words checked against a board")
+    @StackTrace(false)
+    public static class Validation extends Event {
+        @Label("Board")
+        @Description("The 16 cells, row by row")
+        public String board;
+
+        @Label("Submissions")
+        public int submissions;
+
+        @Label("Accepted")
+        public int accepted;
+    }
+
+    /**
+     * Whether events can be recorded yet: false until the first recording
+     * starts (from the command line, jcmd or the API). Every caller checks
+     * this before creating an event, so a process that never records never
+     * loads an event class or sets up JFR.
+     *
+     * @return true once Flight Recorder is initialized
+     */
+    public static boolean enabled() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Board id used in the events: the 16 cells, row by row
+     *
+     * @param board the board
+     * @return the id
+     */
+    public static String boardId(char[][] board) {
+        StringBuilder id = new StringBuilder(16);
+        for (char[] row : board) id.append(row);
+        return id.toString();
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+  Tail latency of every solver engine on the stress corpus.
+
+  Each engine is loaded by class name (see BoggleSolver.create) and runs
+  warmup passes over the corpus (see StressCorpus), then timed passes.
+  Every getWords call is one sample of wall time, which unlike CPU time
+  includes the GC and safepoint pauses behind most spikes, and of bytes
+  allocated on the calling thread. Per engine the mean, p99, p99.9 and
+  worst case of both are reported, with the board that took longest.
+  Random boards are run the same way for comparison.
+
+  Usage: StressBenchmark wordFile [--corpus file] [--warmup N] [--iterations N]
+                                  [--random N] [engineClass ...]
+         (default engines: BogglePlayer OffHeapBogglePlayer BatchBogglePlayer
+          ShardedBogglePlayer LazyBogglePlayer)
+*/
+public class StressBenchmark {
+    private static final String[] ENGINES = {
+        "BogglePlayer", "OffHeapBogglePlayer", "BatchBogglePlayer", "ShardedBogglePlayer", "LazyBogglePlayer"
+    };
+
+    // Samples of one engine over one set of boards
+    private static class Samples {
+        final LatencyHistogram time = new LatencyHistogram();
+        final LatencyHistogram allocation = new LatencyHistogram(); // bytes, not nanoseconds
+        long totalTime;
+        long totalAllocation;
+        long worstTime = -1;
+        int worstBoard;
+        int count;
+
+        void add(int board, long nanos, long bytes) {
+            time.record(nanos);
+            allocation.record(bytes);
+            totalTime += nanos;
+            totalAllocation += bytes;
+            count++;
+            if (nanos > worstTime) {
+                worstTime = nanos;
+                worstBoard = board;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) usage();
+        String wordFile = args[0];
+        String corpusFile = StressCorpus.DEFAULT_FILE;
+        int warmup = 5, iterations = 50, randomBoards = 1000;
+        List<String> engines = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--corpus": corpusFile = value(args, ++i); break;
+                case "--warmup": warmup = intValue(args, ++i); break;
+                case "--iterations": iterations = intValue(args, ++i); break;
+                case "--random": randomBoards = intValue(args, ++i); break;
+                default: engines.add(args[i]); break;
+            }
+        }
+        if (engines.isEmpty()) engines.addAll(Arrays.asList(ENGINES));
+
+        List<StressCorpus.Entry> entries = StressCorpus.read(Paths.get(corpusFile));
+        char[][][] corpus = new char[entries.size()][][];
+        for (int b = 0; b < corpus.length; b++) corpus[b] = entries.get(b).board;
+        char[][][] random = new char[randomBoards][][];
+        for (int b = 0; b < randomBoards; b++) random[b] = BoggleBoards.randomBoard(b);
+        // as many random calls as corpus calls, so the tails are comparable
+        int randomIterations = Math.max(1, (int) ((long) iterations * corpus.length / Math.max(1, randomBoards)));
+
+        System.out.printf("%d corpus boards from %s, %d timed passes; %d random boards, %d passes\n", corpus.length,
+                          corpusFile, iterations, randomBoards, randomIterations);
+        System.out.printf("%-22s %-7s %9s %9s %9s %9s  %9s %9s %9s  %s\n", "engine", "boards", "mean us",
+                          "p99 us", "p99.9 us", "max us", "mean KB", "p99.9 KB", "max KB", "slowest board");
+        for (String name : engines) {
+            BoggleSolver engine = BoggleSolver.create(name, wordFile);
+            Samples onCorpus = run(engine, corpus, warmup, iterations);
+            Samples onRandom = run(engine, random, warmup, randomIterations);
+            print(name, "stress", onCorpus, corpus);
+            print("", "random", onRandom, random);
+            if (engine instanceof AutoCloseable) ((AutoCloseable) engine).close();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: StressBenchmark wordFile [--corpus file] [--warmup N] [--iterations N]");
+        System.err.println("                                [--random N] [engineClass ...]");
+        System.exit(-1);
+    }
+
+    // args[i], the value of the option before it; usage if it is missing
+    private static String value(String[] args, int i) {
+        if (i >= args.length) usage();
+        return args[i];
+    }
+
+    // Same for a numeric option
+    private static int intValue(String[] args, int i) {
+        try {
+            return Integer.parseInt(value(args, i));
+        } catch (NumberFormatException e) {
+            usage();
+            return 0; // not reached
+        }
+    }
+
+    private static Samples run(BoggleSolver engine, char[][][] boards, int warmup, int iterations) {
+        for (int pass = 0; pass < warmup; pass++) {
+            for (char[][] board : boards) engine.getWords(board);
+        }
+        Samples samples = new Samples();
+        long[] nanos = new long[1];
+        for (int pass = 0; pass < iterations; pass++) {
+            for (int b = 0; b < boards.length; b++) {
+                char[][] board = boards[b];
+                long bytes = TrieMemoryReport.allocatedBytes(() -> {
+                    long start = System.nanoTime();
+                    engine.getWords(board);
+                    nanos[0] = System.nanoTime() - start;
+                });
+                samples.add(b, nanos[0], bytes);
+            }
+        }
+        return samples;
+    }
+
+    private static void print(String engine, String set, Samples s, char[][][] boards) {
+        System.out.printf("%-22s %-7s %9.1f %9.1f %9.1f %9.1f  %9.1f %9.1f %9.1f  %s\n", engine, set,
+                          s.totalTime / 1e3 / s.count, s.time.valueAtPercentile(99) / 1e3,
+                          s.time.valueAtPercentile(99.9) / 1e3, s.time.max() / 1e3,
+                          s.totalAllocation / 1024.0 / s.count, s.allocation.valueAtPercentile(99.9) / 1024.0,
+                          s.allocation.max() / 1024.0, SolverEvents.boardId(boards[s.worstBoard]));
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/*
+  Worst-case boards for the solvers, and the corpus file they are kept in.
+
+  Random boards rarely cause the latency spikes: those come from boards
+  dense in common letters (E, S, R, T, A, ...) where the DFS in
+  BogglePlayer keeps finding live trie nodes. This searches for such
+  boards by hill climbing under the dice constraints, so every board can
+  really be rolled: each of the 16 dice sits on one cell, showing one of
+  its faces.
+
+  A climb starts from a random roll and tries one move at a time, either
+  turning one die to another face or swapping two dice. A move is kept
+  when the board costs at least as much as before, cost being the trie
+  nodes BogglePlayer.getWords visits and then the distinct words it finds
+  (sideways moves let the climb cross plateaus). Each restart adds the
+  best board of its climb to the corpus.
+
+  Corpus file (text, one field per line):
+    # comments
+    stress-corpus <format version>
+    dictionary <file name> <bytes> <crc32 hex>
+    generator seed <seed> restarts <n> steps <n>
+    board <16 cells, row by row> nodes <n> words <n>
+    ...
+  Node and word counts belong to the dictionary named in the header;
+  the boards themselves are valid with any dictionary.
+
+  Usage: StressCorpus wordFile [--restarts N] [--steps N] [--seed S] [--out file]
+*/
+public class StressCorpus {
+    public static final int VERSION = 1;
+    public static final String DEFAULT_FILE = "test-results/stress-corpus.txt";
+
+    // A corpus board with the counts it was found with
+    public static final class Entry {
+        public final char[][] board;
+        public final long nodes;
+        public final int words;
+
+        Entry(char[][] board, long nodes, int words) {
+            this.board = board;
+            this.nodes = nodes;
+            this.words = words;
+        }
+    }
+
+    private final BogglePlayer player;
+    private final Random rnd;
+    // current climb: die on each cell and the face it shows
+    private final int[] dieAt = new int[16];
+    private final int[] faceAt = new int[16];
+
+    private StressCorpus(BogglePlayer player, long seed) {
+        this.player = player;
+        rnd = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length % 2 == 0) {
+            System.err.println("Usage: StressCorpus wordFile [--restarts N] [--steps N] [--seed S] [--out file]");
+            System.exit(-1);
+        }
+        String wordFile = args[0];
+        int restarts = 64, steps = 2000;
+        long seed = 1;
+        String out = DEFAULT_FILE;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--restarts": restarts = Integer.parseInt(args[i + 1]); break;
+                case "--steps": steps = Integer.parseInt(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--out": out = args[i + 1]; break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(-1);
+            }
+        }
+
+        BogglePlayer player = new BogglePlayer(wordFile);
+        StressCorpus generator = new StressCorpus(player, seed);
+        List<Entry> corpus = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int r = 0; r < restarts; r++) {
+            Entry best = generator.climb(steps);
+            if (seen.add(SolverEvents.boardId(best.board))) corpus.add(best);
+            System.out.printf("restart %d: %d nodes, %d words\n", r + 1, best.nodes, best.words);
+        }
+        corpus.sort(Comparator.comparingLong((Entry e) -> e.nodes).reversed());
+
+        Path file = Paths.get(out);
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        write(file, corpus, wordFile, "seed " + seed + " restarts " + restarts + " steps " + steps);
+        System.out.println(corpus.size() + " boards written to " + file);
+
+        // how far the corpus is from the boards the evaluator plays
+        long[] random = new long[1000];
+        for (int i = 0; i < random.length; i++) random[i] = player.search(BoggleBoards.randomBoard(i), 20).nodesVisited;
+        Arrays.sort(random);
+        System.out.printf("nodes per board: random boards median %d, max %d; corpus median %d, max %d\n",
+                          random[random.length / 2], random[random.length - 1],
+                          corpus.get(corpus.size() / 2).nodes, corpus.get(0).nodes);
+    }
+
+    // One hill climb from a random roll; the best board it reached
+    private Entry climb(int steps) {
+        List<Integer> dice = new ArrayList<>();
+        for (int d = 0; d < 16; d++) dice.add(d);
+        Collections.shuffle(dice, rnd);
+        for (int cell = 0; cell < 16; cell++) {
+            dieAt[cell] = dice.get(cell);
+            faceAt[cell] = rnd.nextInt(6);
+        }
+        Entry current = evaluate();
+        for (int step = 0; step < steps; step++) {
+            int cell = rnd.nextInt(16), other = rnd.nextInt(16);
+            int oldFace = faceAt[cell];
+            boolean swap = rnd.nextBoolean() && other != cell;
+            if (swap) {
+                swapCells(cell, other);
+            } else {
+                faceAt[cell] = (oldFace + 1 + rnd.nextInt(5)) % 6;
+            }
+            Entry next = evaluate();
+            if (next.nodes > current.nodes || (next.nodes == current.nodes && next.words >= current.words)) {
+                current = next;
+            } else if (swap) {
+                swapCells(cell, other);
+            } else {
+                faceAt[cell] = oldFace;
+            }
+        }
+        return current;
+    }
+
+    private void swapCells(int a, int b) {
+        int die = dieAt[a], face = faceAt[a];
+        dieAt[a] = dieAt[b];
+        faceAt[a] = faceAt[b];
+        dieAt[b] = die;
+        faceAt[b] = face;
+    }
+
+    private Entry evaluate() {
+        char[][] board = new char[4][4];
+        for (int cell = 0; cell < 16; cell++) {
+            board[cell / 4][cell % 4] = BoggleBoards.BOGGLE_DICES.get(dieAt[cell]).charAt(faceAt[cell]);
+        }
+        BogglePlayer.Search search = player.search(board, 20);
+        return new Entry(board, search.nodesVisited, search.foundWordStrings.size());
+    }
+
+    /**
+     * Write a corpus file
+     *
+     * @param file      where to write
+     * @param corpus    the boards
+     * @param wordFile  dictionary the counts were taken with
+     * @param generator how the boards were found, for the header
+     * @throws IOException if a file can't be read or written
+     */
+    public static void write(Path file, List<Entry> corpus, String wordFile, String generator) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("# Boggle stress corpus: boards that maximize the trie nodes BogglePlayer.getWords visits\n");
+        text.append("# regenerate with: java StressCorpus ").append(Paths.get(wordFile).getFileName()).append('\n');
+        text.append("stress-corpus ").append(VERSION).append('\n');
+        text.append("dictionary ").append(Paths.get(wordFile).getFileName()).append(' ')
+            .append(Files.size(Paths.get(wordFile))).append(' ').append(Long.toHexString(crc(wordFile))).append('\n');
+        text.append("generator ").append(generator).append('\n');
+        for (Entry e : corpus) {
+            text.append("board ").append(SolverEvents.boardId(e.board)).append(" nodes ").append(e.nodes)
+                .append(" words ").append(e.words).append('\n');
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Read a corpus file
+     *
+     * @param file the corpus
+     * @return its boards, in file order
+     * @throws IOException if the file can't be read, or has another format version
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> corpus = new ArrayList<>();
+        int version = -1;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split(" ");
+            switch (fields[0]) {
+                case "stress-corpus":
+                    version = Integer.parseInt(fields[1]);
+                    if (version != VERSION) {
+                        throw new IOException(file + ": corpus format " + version + ", expected " + VERSION);
+                    }
+                    break;
+                case "board":
+                    if (version < 0) throw new IOException(file + ": no stress-corpus header");
+                    if (fields[1].length() != 16) throw new IOException(file + ": bad board " + fields[1]);
+                    char[][] board = new char[4][4];
+                    for (int cell = 0; cell < 16; cell++) board[cell / 4][cell % 4] = fields[1].charAt(cell);
+                    corpus.add(new Entry(board, Long.parseLong(fields[3]), Integer.parseInt(fields[5])));
+                    break;
+                default:
+                    break; // dictionary, generator: informational
+            }
+        }
+        return corpus;
+    }
+
+    private static long crc(String wordFile) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(new BufferedInputStream(new FileInputStream(wordFile)),
+                                                            new CRC32())) {
+            byte[] buffer = new byte[1 << 16];
+            while (in.read(buffer) >= 0) {
+                // checksum only
+            }
+            return in.getChecksum().getValue();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.*;
+
+/*
+  Maps board cells to the letters they spell.
+
+  Every board char is a tile. Tiles 0-25 are the single letters A-Z (tile id
+  = letter index), multi-letter tiles get ids 26-31 in order of their board
+  char, so a tile id always fits the 32 child slots of a trie node and the
+  5 bits of a packed board cell.
+
+  CLASSIC is the standard game: the Q cell spells QU. EXTENDED adds the
+  digraph tiles of newer editions, written on the board as digits:
+  1 = TH, 2 = IN, 3 = ER, 4 = HE, 5 = AN.
+*/
+public final class TileSet {
+    public static final int LETTERS = 26;
+    public static final int MAX_TILES = 32; // 26 letters + up to 6 multi-letter tiles
+
+    public static final TileSet CLASSIC = new TileSet(Map.of('Q', "QU"));
+    public static final TileSet EXTENDED = new TileSet(Map.of('Q', "QU", '1', "TH", '2', "IN",
+                                                              '3', "ER", '4', "HE", '5', "AN"));
+
+    private final int[] tileOf = new int[128];            // board char -> tile id, -1 if not a tile
+    private final String[] letters = new String[MAX_TILES]; // tile id -> letters, null if unused
+
+    /**
+     * Build a tile set: A-Z spell themselves unless mapped here
+     *
+     * @param multiLetterTiles board char -> the 2 or more uppercase letters it spells
+     */
+    public TileSet(Map<Character, String> multiLetterTiles) {
+        if (multiLetterTiles.size() > MAX_TILES - LETTERS) {
+            throw new IllegalArgumentException("at most " + (MAX_TILES - LETTERS) + " multi-letter tiles");
+        }
+        Arrays.fill(tileOf, -1);
+        for (char c = 'A'; c <= 'Z'; c++) {
+            tileOf[c] = c - 'A';
+            letters[c - 'A'] = String.valueOf(c);
+        }
+        int next = LETTERS;
+        for (Map.Entry<Character, String> tile : new TreeMap<>(multiLetterTiles).entrySet()) {
+            char c = tile.getKey();
+            String spelled = tile.getValue();
+            if (c >= 128 || spelled.length() < 2 || !spelled.chars().allMatch(l -> l >= 'A' && l <= 'Z')) {
+                throw new IllegalArgumentException("bad tile " + c + " -> " + spelled);
+            }
+            if (c >= 'A' && c <= 'Z') letters[c - 'A'] = null; // the letter itself is no longer on the board
+            tileOf[c] = next;
+            letters[next++] = spelled;
+        }
+    }
+
+    /**
+     * Tile id of a board char
+     *
+     * @param c board char
+     * @return tile id, -1 if c is not a tile of this set
+     */
+    public int tileId(char c) {
+        return c < 128 ? tileOf[c] : -1;
+    }
+
+    /**
+     * Letters spelled by a tile
+     *
+     * @param tileId tile id
+     * @return the letters, null if the id is unused
+     */
+    public String letters(int tileId) {
+        return letters[tileId];
+    }
+
+    /**
+     * Letters spelled by a board char
+     *
+     * @param c board char
+     * @return the letters, null if c is not a tile of this set
+     */
+    public String spell(char c) {
+        int id = tileId(c);
+        return id < 0 ? null : letters[id];
+    }
+}
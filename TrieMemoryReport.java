@@ -0,0 +1,174 @@
+import java.lang.management.*;
+import java.util.*;
+
+/*
+  Retained-size accounting for the dictionary trie.
+
+  Unlike the evaluator's peakMemoryUsage (peak of every heap pool, which also
+  counts garbage from reading words.txt and unrelated JVM state), this walks the
+  trie and adds up the shallow size of every object it owns, using the object
+  layout of the running JVM (compressed oops / class pointers or not).
+  Built from a CompressedTrie the figure also includes the solver's PrefixTable;
+  built from a bare root it covers the trie nodes only.
+
+  It also measures the bytes allocated by a single getWords call on the
+  calling thread, so solver garbage is reported separately from the structure.
+
+  Usage: TrieMemoryReport wordFile [seed]
+*/
+public class TrieMemoryReport {
+    private static final int MAX_FANOUT = 26;
+
+    // object layout of the running JVM
+    private final int refSize;
+    private final int objectHeader;
+    private final int arrayHeader;
+
+    private long words;
+    private long nodes;
+    private final List<Long> nodesPerDepth = new ArrayList<>();
+    private final long[] fanOut = new long[MAX_FANOUT + 1];
+    private long leafNodes, sparseNodes, denseNodes;
+    private long nodeBytes;     // node objects: header, references, flags
+    private long keyBytes;      // sorted key arrays of sparse nodes
+    private long childBytes;    // child reference arrays
+    private long prefixBytes;   // PrefixTable and its three lookup arrays, 0 for a bare root
+
+    // the dictionary's trie plus the PrefixTable the solver reads from it
+    public TrieMemoryReport(CompressedTrie dictionary) {
+        this(dictionary.getRoot());
+        int tiles = TileSet.MAX_TILES;
+        // PrefixTable: root, singles, pairs, triples references
+        prefixBytes = align(objectHeader + 4 * refSize)
+                      + align(arrayHeader + tiles * refSize)
+                      + align(arrayHeader + tiles * tiles * refSize)
+                      + align(arrayHeader + tiles * tiles * tiles * refSize);
+    }
+
+    // trie nodes only
+    public TrieMemoryReport(Node root) {
+        boolean compressedOops = vmFlag("UseCompressedOops", true);
+        boolean compressedClass = vmFlag("UseCompressedClassPointers", true);
+        refSize = compressedOops ? 4 : 8;
+        objectHeader = compressedClass ? 12 : 16;
+        arrayHeader = align(objectHeader + 4);
+        walk(root);
+    }
+
+    // iterative walk so deep words can't overflow the stack
+    private void walk(Node root) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(root);
+        depths.push(0);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int depth = depths.pop();
+            count(node, depth);
+            for (int c = node.nextKey(0); c >= 0; c = node.nextKey(c + 1)) {
+                stack.push(node.child(c));
+                depths.push(depth + 1);
+            }
+        }
+    }
+
+    private void count(Node node, int depth) {
+        nodes++;
+        if (node.isWord) words++;
+        while (nodesPerDepth.size() <= depth) nodesPerDepth.add(0L);
+        nodesPerDepth.set(depth, nodesPerDepth.get(depth) + 1);
+        fanOut[node.childCount()]++;
+
+        if (node.isDense()) denseNodes++;
+        else if (node.childCapacity() == 0) leafNodes++;
+        else sparseNodes++;
+
+        // Node: keys, children references + int requiredMask + byte size, tileEdges + boolean isWord
+        nodeBytes += align(objectHeader + 2 * refSize + 4 + 1 + 1 + 1);
+        // zero capacity means the shared empty arrays, which no node owns
+        if (node.keyCapacity() > 0) keyBytes += align(arrayHeader + node.keyCapacity());
+        if (node.childCapacity() > 0) childBytes += align(arrayHeader + node.childCapacity() * refSize);
+    }
+
+    public long totalBytes() {
+        return nodeBytes + keyBytes + childBytes + prefixBytes;
+    }
+
+    public long getWordCount() {
+        return words;
+    }
+
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    public void print(java.io.PrintStream out) {
+        out.println("Dictionary memory (retained, " + refSize + "-byte references"
+                    + (prefixBytes == 0 ? ", trie nodes only):" : "):"));
+        out.printf("  words: %d, nodes: %d (leaf %d, sparse %d, dense %d)\n",
+                   words, nodes, leafNodes, sparseNodes, denseNodes);
+        out.printf("  node objects (headers, refs, flags): %,d bytes\n", nodeBytes);
+        out.printf("  child arrays:                        %,d bytes\n", childBytes);
+        out.printf("  key arrays:                          %,d bytes\n", keyBytes);
+        if (prefixBytes > 0) out.printf("  prefix table:                        %,d bytes\n", prefixBytes);
+        out.printf("  total:                               %,d bytes (%.1f bytes/word)\n",
+                   totalBytes(), words == 0 ? 0.0 : (double) totalBytes() / words);
+        out.println("  nodes per depth:");
+        for (int d = 0; d < nodesPerDepth.size(); d++) {
+            out.printf("    %2d: %d\n", d, nodesPerDepth.get(d));
+        }
+        out.println("  fan-out histogram:");
+        for (int f = 0; f <= MAX_FANOUT; f++) {
+            if (fanOut[f] > 0) out.printf("    %2d: %d\n", f, fanOut[f]);
+        }
+    }
+
+    /**
+     * Bytes allocated on the calling thread while running the task;
+     * -1 if the JVM can't measure per-thread allocation
+     *
+     * @param task the work to measure, e.g. one getWords call
+     * @return allocated bytes
+     */
+    public static long allocatedBytes(Runnable task) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            task.run();
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        long before = sunBean.getThreadAllocatedBytes(id);
+        task.run();
+        return sunBean.getThreadAllocatedBytes(id) - before;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static boolean vmFlag(String name, boolean fallback) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean =
+                ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException e) {
+            return fallback;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: TrieMemoryReport wordFile [seed]");
+            System.exit(-1);
+        }
+        BogglePlayer player = new BogglePlayer(args[0]);
+        new TrieMemoryReport(player.getDictionary()).print(System.out);
+
+        long seed = args.length == 2 ? Long.parseLong(args[1]) : 123456789;
+        char[][] board = BoggleBoards.randomBoard(seed);
+        player.getWords(board); // warm up so class loading isn't counted
+        long allocated = allocatedBytes(() -> player.getWords(board));
+        System.out.printf("getWords allocation (seed %d): %,d bytes\n", seed, allocated);
+    }
+}
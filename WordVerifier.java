@@ -0,0 +1,198 @@
+import java.util.*;
+import java.util.stream.*;
+
+/*
+  Verifies words submitted as plain strings.
+
+  A submission is checked against the same rules as the evaluator: 3 to 16
+  letters, in the dictionary, spelled by a path of adjacent cells that uses
+  each cell at most once, where a cell spells the letters of its tile (see
+  TileSet; "QU" for a Q cell). Dictionary membership is a trie walk
+  (O(length)), and the path search only starts from the cells whose tile
+  starts with the first letter. Accepted submissions come back as a Word
+  with its path filled in; rejected ones with the reason.
+
+  A batch shares the per-board setup (cell letters, cells by first letter),
+  and large batches are verified in parallel.
+*/
+public class WordVerifier {
+    // Why a submission was rejected
+    public enum Rejection {
+        TOO_SHORT,          // fewer than 3 letters
+        TOO_LONG,           // more than 16 letters
+        NOT_LETTERS,        // something other than A-Z
+        NOT_IN_DICTIONARY,
+        NOT_ON_BOARD,       // no path of adjacent, unused cells spells it
+        DUPLICATE           // same word earlier in the batch
+    }
+
+    // Outcome for one submission: word is null exactly when rejection isn't
+    public static class Result {
+        public final String submitted;
+        public final Word word;
+        public final Rejection rejection;
+
+        Result(String submitted, Word word, Rejection rejection) {
+            this.submitted = submitted;
+            this.word = word;
+            this.rejection = rejection;
+        }
+
+        public boolean isValid() {
+            return word != null;
+        }
+    }
+
+    // batches at least this large are verified in parallel
+    private static final int PARALLEL_BATCH = 64;
+
+    // Cells adjacent to each cell (cell = row * 4 + col)
+    private static final int[][] NEIGHBORS = new int[16][];
+
+    static {
+        for (int cell = 0; cell < 16; cell++) {
+            int row = cell / 4, col = cell % 4, count = 0;
+            int[] around = new int[8];
+            for (int dr = -1; dr <= 1; dr++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    int r = row + dr, c = col + dc;
+                    if ((dr != 0 || dc != 0) && r >= 0 && r < 4 && c >= 0 && c < 4) around[count++] = r * 4 + c;
+                }
+            }
+            NEIGHBORS[cell] = Arrays.copyOf(around, count);
+        }
+    }
+
+    // Per-board setup: what each cell spells (cell = row * 4 + col), and the
+    // cells whose letters start with each letter
+    private static final class Cells {
+        final String[] letters = new String[16];
+        final int[][] byFirstLetter = new int[26][];
+    }
+
+    private final CompressedTrie dictionary;
+    private final TileSet tiles;
+
+    public WordVerifier(CompressedTrie dictionary) {
+        this.dictionary = dictionary;
+        this.tiles = dictionary.getTileSet();
+    }
+
+    /**
+     * Verify a batch of submissions for one board; a word submitted more than
+     * once is accepted the first time and rejected as DUPLICATE afterwards
+     *
+     * @param board       the board
+     * @param submissions submitted strings, any case
+     * @return one result per submission, in the same order
+     */
+    public Result[] verify(char[][] board, List<String> submissions) {
+        // no event until a recording exists (see SolverEvents.enabled)
+        SolverEvents.Validation event = SolverEvents.enabled() ? new SolverEvents.Validation() : null;
+        if (event != null) event.begin();
+        Cells cells = cells(board);
+        // one dictionary snapshot for the whole batch, so a concurrent update
+        // can't change the words halfway through it
+        Node root = dictionary.getRoot();
+        IntStream indexes = IntStream.range(0, submissions.size());
+        if (submissions.size() >= PARALLEL_BATCH) indexes = indexes.parallel();
+        Result[] results = new Result[submissions.size()];
+        indexes.forEach(i -> results[i] = verify(cells, root, submissions.get(i)));
+
+        // first occurrence wins, in submission order
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i].isValid()) continue;
+            if (!seen.add(results[i].word.getWord())) {
+                results[i] = new Result(results[i].submitted, null, Rejection.DUPLICATE);
+            }
+        }
+
+        if (event != null) event.end();
+        if (event != null && event.shouldCommit()) {
+            event.board = SolverEvents.boardId(board);
+            event.submissions = results.length;
+            for (Result r : results) if (r.isValid()) event.accepted++;
+            event.commit();
+        }
+        return results;
+    }
+
+    /**
+     * Verify a single submission
+     *
+     * @param board     the board
+     * @param submitted submitted string, any case
+     * @return the result
+     */
+    public Result verify(char[][] board, String submitted) {
+        // no event until a recording exists (see SolverEvents.enabled)
+        SolverEvents.Validation event = SolverEvents.enabled() ? new SolverEvents.Validation() : null;
+        if (event != null) event.begin();
+        Result result = verify(cells(board), dictionary.getRoot(), submitted);
+        if (event != null) event.end();
+        if (event != null && event.shouldCommit()) {
+            event.board = SolverEvents.boardId(board);
+            event.submissions = 1;
+            event.accepted = result.isValid() ? 1 : 0;
+            event.commit();
+        }
+        return result;
+    }
+
+    private Result verify(Cells cells, Node root, String submitted) {
+        String word = submitted.toUpperCase();
+        if (word.length() < 3) return new Result(submitted, null, Rejection.TOO_SHORT);
+        if (word.length() > 16) return new Result(submitted, null, Rejection.TOO_LONG);
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') return new Result(submitted, null, Rejection.NOT_LETTERS);
+        }
+        if (!CompressedTrie.contains(root, word)) return new Result(submitted, null, Rejection.NOT_IN_DICTIONARY);
+
+        int[] path = new int[16];
+        for (int start : cells.byFirstLetter[word.charAt(0) - 'A']) {
+            int length = search(cells.letters, word, 0, start, 0, path, 0);
+            if (length > 0) {
+                Word found = new Word(word);
+                for (int i = 0; i < length; i++) found.addLetterRowAndCol(path[i] / 4, path[i] % 4);
+                return new Result(submitted, found, null);
+            }
+        }
+        return new Result(submitted, null, Rejection.NOT_ON_BOARD);
+    }
+
+    // Match word[at..] starting on cell; returns the path length on success, 0 otherwise
+    private static int search(String[] letters, String word, int at, int cell, int used, int[] path, int depth) {
+        if (letters[cell] == null || !word.startsWith(letters[cell], at)) return 0;
+        int next = at + letters[cell].length();
+        path[depth] = cell;
+        if (next == word.length()) return depth + 1;
+        used |= 1 << cell;
+        for (int neighbor : NEIGHBORS[cell]) {
+            if ((used & (1 << neighbor)) == 0) {
+                int length = search(letters, word, next, neighbor, used, path, depth + 1);
+                if (length > 0) return length;
+            }
+        }
+        return 0;
+    }
+
+    private Cells cells(char[][] board) {
+        Cells cells = new Cells();
+        int[] counts = new int[26];
+        for (int cell = 0; cell < 16; cell++) {
+            String letters = tiles.spell(board[cell / 4][cell % 4]);
+            cells.letters[cell] = letters; // null: not a tile, never on a path
+            if (letters != null) counts[letters.charAt(0) - 'A']++;
+        }
+        for (int letter = 0; letter < 26; letter++) cells.byFirstLetter[letter] = new int[counts[letter]];
+        Arrays.fill(counts, 0);
+        for (int cell = 0; cell < 16; cell++) {
+            if (cells.letters[cell] == null) continue;
+            int letter = cells.letters[cell].charAt(0) - 'A';
+            cells.byFirstLetter[letter][counts[letter]++] = cell;
+        }
+        return cells;
+    }
+}
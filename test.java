@@ -13,12 +13,14 @@ import java.util.Random;
   Original Author: Taher Patanwala
   Pseudocode: Philip Chan
 
-  Usage: EvalBogglePlayer wordFile [numSeeds] [startSeed]
+  Usage: EvalBogglePlayer wordFile [numSeeds] [startSeed] [engineClass]
 
   Input:
   wordFile has valid words, one on each line
   numSeeds is the number of different seeds to use for testing [optional, default = 5]
   startSeed is the first seed value [optional, default = 123456789]
+  engineClass is the BoggleSolver to evaluate [optional, default = BogglePlayer]
+  (use CompareSolvers to run several engines side by side)
 
   Description:
   The goal is to evaluate BogglePlayer across multiple random boards
@@ -37,9 +39,9 @@ public class test {
             "AAEEGN", "ABBJOO", "ACHOPS", "AFFKPS", "AOOTTW", "CIMOTU", "DEILRX", "DELRVY",
             "DISTTY", "EEGHNW", "EEINSU", "EHRTVW", "EIOSST", "ELRTTY", "HIMNUQ", "HLNNRZ"));
 
-    public static void main(String[] args) throws IOException {
-        if (args.length < 1 || args.length > 3) {
-            System.err.println("Usage: EvalBogglePlayer wordFile [numSeeds] [startSeed]");
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("Usage: EvalBogglePlayer wordFile [numSeeds] [startSeed] [engineClass]");
             System.exit(-1);
         }
 
@@ -58,7 +60,7 @@ public class test {
         //Preprocessing in BogglePlayer
         System.out.println("Preprocessing in BogglePlayer...");
         long startPreProcTime = bean.getCurrentThreadCpuTime();
-        BogglePlayer player = new BogglePlayer(args[0]);
+        BoggleSolver player = args.length == 4 ? BoggleSolver.create(args[3], args[0]) : new BogglePlayer(args[0]);
         long endPreProcTime = bean.getCurrentThreadCpuTime();
 
         //Stop if pre-processing runs for more than 3 minutes.
@@ -72,6 +74,14 @@ public class test {
         System.out.println("Pre-processing in seconds (not part of score): " + df.format(processingTimeInSec));
         runtime.gc();
         System.out.println("memory in bytes (not part of score): " + df.format((double)peakMemoryUsage()));
+        if (player instanceof BogglePlayer) {
+            TrieMemoryReport trieMemory = new TrieMemoryReport(((BogglePlayer) player).getDictionary());
+            // no words when the dictionary failed to load and the player fell back to an empty trie
+            String perWord = trieMemory.getWordCount() > 0
+                             ? " (" + trieMemory.totalBytes() / trieMemory.getWordCount() + " bytes/word)" : "";
+            System.out.println("dictionary retained bytes (not part of score): " + df.format((double)trieMemory.totalBytes())
+                               + perWord);
+        }
 
         // Number of seeds to use for evaluation
         int numSeeds = 5;  // default
@@ -81,7 +91,7 @@ public class test {
         
         // Starting seed value
         long startSeed = 123456789;  // default
-        if (args.length == 3) {
+        if (args.length >= 3) {
             startSeed = Long.parseLong(args[2]);
         }
         
@@ -139,11 +149,21 @@ public class test {
             // Play the game of Boggle and find the words
             Word[] words = player.getWords(boardCopy);
             long endTime = bean.getCurrentThreadCpuTime();
-            
             // Calculate the used memory
             runtime.gc();
             long memory = peakMemoryUsage();
 
+            // Bytes allocated by one getWords call, measured on a second run of
+            // the same board so the timed call above stays untouched; BogglePlayer's
+            // second run is kept out of the latency histogram printed at the end
+            long allocated = TrieMemoryReport.allocatedBytes(() -> {
+                if (player instanceof BogglePlayer) {
+                    ((BogglePlayer) player).getWords(boardCopy, 20, false);
+                } else {
+                    player.getWords(boardCopy);
+                }
+            });
+
             double elapsedTime = (endTime - startTime) / 1.0E9;
             if (elapsedTime > 180) { // longer than 3 minutes
                 System.err.println("player.getWords() exceeded 3 minutes");
@@ -178,6 +198,7 @@ public class test {
             System.out.printf("  Points: %d\n", points);
             System.out.println("  Time in seconds: " + df.format(elapsedTime));
             System.out.println("  Used memory in bytes: " + df.format((double)memory));
+            System.out.println("  getWords allocation in bytes (not part of score): " + df.format((double)allocated));
             System.out.printf("  Score: %.4f\n", score);
             System.out.println("------------------------------------------------------");
             
@@ -200,9 +221,13 @@ public class test {
         System.out.println("Average Time in seconds: " + df.format(avgTime));
         System.out.println("Average Memory in bytes: " + df.format(avgMemory));
         System.out.printf("Average Score: %.4f\n", avgScore);
+        if (player instanceof BogglePlayer) {
+            System.out.print("getWords latency (not part of score): ");
+            ((BogglePlayer) player).getLatencyHistogram().print(System.out);
+        }
         
         // Keep player used to avoid garbage collection of player
-        BogglePlayer player2 = player;
+        BoggleSolver player2 = player;
     }
 
     /**